@@ -2,6 +2,7 @@ plugins {
 	java
 	id("org.springframework.boot") version "4.0.0"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "de.device"
@@ -24,10 +25,13 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-webmvc")
 	implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("org.springframework.boot:spring-boot-starter-aspectj")
     implementation("io.micrometer:micrometer-registry-prometheus")
+    implementation("tools.jackson.dataformat:jackson-dataformat-cbor")
+    implementation("com.github.ben-manes.caffeine:caffeine")
 	implementation("org.flywaydb:flyway-database-postgresql")
     implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:3.0.0")
-	runtimeOnly("org.postgresql:postgresql")
+	implementation("org.postgresql:postgresql")
     runtimeOnly("com.h2database:h2")
 
     testImplementation("org.apache.commons:commons-lang3:3.20.0")
@@ -41,3 +45,13 @@ dependencies {
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+// ./gradlew jmh, results are stored per project version to compare releases
+jmh {
+	jmhVersion = "1.37"
+	fork = 1
+	warmupIterations = 3
+	iterations = 5
+	resultFormat = "JSON"
+	resultsFile = layout.buildDirectory.file("reports/jmh/results-${project.version}.json")
+}
@@ -0,0 +1,100 @@
+package de.device.demo.benchmarks;
+
+import de.device.demo.DemoApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating devices over HTTP against the running application on the dev database, once per device through
+ * {@code POST /api/devices} and once through a single {@code POST /api/devices/batch}. One operation creates
+ * all {@code items} devices either way, so the scores compare directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeviceBatchCreateBenchmark {
+
+    private static final String DEVICE = "{\"name\":\"Device\",\"brand\":\"Benchmark\"}";
+
+    @Param({"single", "batch"})
+    private String endpoint;
+
+    @Param({"100", "1000"})
+    private int items;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest singleRequest;
+    private HttpRequest batchRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DemoApplication.class)
+                .profiles("dev")
+                .properties(
+                        "server.port=0",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.de.device.demo=WARN"
+                )
+                .run();
+
+        var baseUri = "http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port") + "/api/devices";
+        var devices = new StringJoiner(",", "[", "]");
+
+        for (int i = 0; i < items; i++) {
+            devices.add(DEVICE);
+        }
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        singleRequest = post(URI.create(baseUri), DEVICE);
+        batchRequest = post(URI.create(baseUri + "/batch"), devices.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int create() throws IOException, InterruptedException {
+        if (endpoint.equals("batch")) {
+            return send(batchRequest);
+        }
+
+        int status = 0;
+
+        for (int i = 0; i < items; i++) {
+            status = send(singleRequest);
+        }
+
+        return status;
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException("Create failed with status " + response.statusCode());
+        }
+
+        return response.statusCode();
+    }
+
+    private static HttpRequest post(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package de.device.demo.benchmarks;
+
+import de.device.demo.components.DefaultDateTimeInterface;
+import de.device.demo.entities.Device;
+import de.device.demo.factories.DefaultDeviceFactory;
+import de.device.demo.factories.RandomDeviceIdGenerator;
+import de.device.demo.factories.TimeOrderedDeviceIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeviceFactoryBenchmark {
+
+    @Param({"time-ordered", "random"})
+    private String idGenerator;
+
+    private DefaultDeviceFactory deviceFactory;
+
+    @Setup
+    public void setUp() {
+        deviceFactory = new DefaultDeviceFactory(
+                new DefaultDateTimeInterface(),
+                idGenerator.equals("random") ? new RandomDeviceIdGenerator() : new TimeOrderedDeviceIdGenerator()
+        );
+    }
+
+    @Benchmark
+    public Device createDevice() {
+        return deviceFactory.createDevice("Device name", "Brand");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Device createDeviceContended() {
+        return deviceFactory.createDevice("Device name", "Brand");
+    }
+}
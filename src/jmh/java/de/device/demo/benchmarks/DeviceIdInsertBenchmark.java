@@ -0,0 +1,108 @@
+package de.device.demo.benchmarks;
+
+import de.device.demo.factories.DeviceIdGenerator;
+import de.device.demo.factories.RandomDeviceIdGenerator;
+import de.device.demo.factories.TimeOrderedDeviceIdGenerator;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Inserting devices into a large table with time ordered and with random ids. The table lives in a file
+ * database migrated with the application's schema and is filled with the chosen ids first. Its size on disk,
+ * primary key and other indexes included, is printed after filling it and after the measured inserts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DeviceIdInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT = "INSERT INTO devices (id, name, brand, state, creation_time, version) VALUES (?, ?, ?, ?, ?, 0)";
+
+    @Param({"time-ordered", "random"})
+    private String idGenerator;
+
+    @Param({"2000000"})
+    private int rows;
+
+    private DeviceIdGenerator generator;
+    private Path directory;
+    private Connection connection;
+    private PreparedStatement insert;
+    private Timestamp creationTime;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        generator = idGenerator.equals("random") ? new RandomDeviceIdGenerator() : new TimeOrderedDeviceIdGenerator();
+        directory = Files.createTempDirectory("device-ids");
+        creationTime = Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0));
+
+        var url = "jdbc:h2:file:" + directory.resolve("devices");
+        Flyway.configure().dataSource(url, "sa", "").locations("classpath:db/migration").load().migrate();
+
+        connection = DriverManager.getConnection(url, "sa", "");
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement(INSERT);
+
+        for (int i = 0; i < rows; i += BATCH_SIZE) {
+            insertBatch();
+        }
+
+        System.out.printf("%n%s ids, %d rows: %d bytes%n", idGenerator, rows, diskSpaceUsed());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.out.printf("%n%s ids, after measured inserts: %d bytes%n", idGenerator, diskSpaceUsed());
+
+        insert.close();
+        connection.close();
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] insertDevices() throws SQLException {
+        return insertBatch();
+    }
+
+    private int[] insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setObject(1, generator.nextId());
+            insert.setString(2, "Device " + i);
+            insert.setString(3, "Brand");
+            insert.setString(4, "AVAILABLE");
+            insert.setTimestamp(5, creationTime);
+            insert.addBatch();
+        }
+
+        var inserted = insert.executeBatch();
+        connection.commit();
+
+        return inserted;
+    }
+
+    private long diskSpaceUsed() throws SQLException {
+        try (var statement = connection.createStatement();
+             var result = statement.executeQuery("SELECT DISK_SPACE_USED('DEVICES')")) {
+            result.next();
+
+            return result.getLong(1);
+        }
+    }
+}
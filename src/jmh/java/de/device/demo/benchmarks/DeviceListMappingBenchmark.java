@@ -0,0 +1,59 @@
+package de.device.demo.benchmarks;
+
+import de.device.demo.dtos.DeviceResponse;
+import de.device.demo.entities.Device;
+import de.device.demo.models.DeviceState;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity page to response mapping that {@code DeviceController.devices()} did before list queries projected
+ * into {@code DeviceView}, kept as a baseline for the cost of the copy and the common pool hop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeviceListMappingBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private Page<Device> page;
+
+    @Setup
+    public void setUp() {
+        var devices = new ArrayList<Device>(pageSize);
+
+        for (int i = 0; i < pageSize; i++) {
+            devices.add(new Device(UUID.randomUUID(), "Device " + i, "Brand", DeviceState.AVAILABLE, LocalDateTime.now()));
+        }
+
+        page = new PageImpl<>(devices, PageRequest.of(0, pageSize), 10_000);
+    }
+
+    @Benchmark
+    public Page<DeviceResponse> parallelStream() {
+        var responses = page.stream().parallel()
+                .map(DeviceResponse::new)
+                .toList();
+
+        return new PageImpl<>(responses, page.getPageable(), page.getTotalElements());
+    }
+
+    @Benchmark
+    public Page<DeviceResponse> sequentialStream() {
+        List<DeviceResponse> responses = page.stream()
+                .map(DeviceResponse::new)
+                .toList();
+
+        return new PageImpl<>(responses, page.getPageable(), page.getTotalElements());
+    }
+}
@@ -0,0 +1,60 @@
+package de.device.demo.benchmarks;
+
+import de.device.demo.configs.CborConfiguration;
+import de.device.demo.dtos.DeviceCursorPageResponse;
+import de.device.demo.dtos.DeviceView;
+import de.device.demo.models.DeviceState;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a 100 device page as JSON and as CBOR with binary UUIDs and epoch date times.
+ * Payload sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DevicePageFormatBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"json", "cbor"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private DeviceCursorPageResponse page;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        mapper = format.equals("cbor") ? CborConfiguration.cborMapperBuilder().build() : JsonMapper.builder().build();
+
+        var devices = new ArrayList<DeviceView>(PAGE_SIZE);
+        var creationTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            devices.add(new DeviceView(UUID.randomUUID(), "Device " + i, "Brand", DeviceState.AVAILABLE, creationTime.plusMinutes(i)));
+        }
+
+        page = new DeviceCursorPageResponse(devices, PAGE_SIZE, "eyJjIjoiMjAyNS0wMS0wMVQwMTozOTowMCJ9");
+        payload = mapper.writeValueAsBytes(page);
+
+        System.out.printf("%n%s page of %d devices: %d bytes%n", format, PAGE_SIZE, payload.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public DeviceCursorPageResponse decode() {
+        return mapper.readValue(payload, DeviceCursorPageResponse.class);
+    }
+}
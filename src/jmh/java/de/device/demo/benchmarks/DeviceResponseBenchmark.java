@@ -0,0 +1,44 @@
+package de.device.demo.benchmarks;
+
+import de.device.demo.dtos.DeviceResponse;
+import de.device.demo.entities.Device;
+import de.device.demo.models.DeviceState;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeviceResponseBenchmark {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private Device device;
+    private DeviceResponse response;
+
+    @Setup
+    public void setUp() {
+        device = new Device(UUID.randomUUID(), "Device name", "Brand", DeviceState.AVAILABLE, LocalDateTime.now());
+        response = new DeviceResponse(device);
+    }
+
+    @Benchmark
+    public DeviceResponse construct() {
+        return new DeviceResponse(device);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] constructAndSerialize() {
+        return objectMapper.writeValueAsBytes(new DeviceResponse(device));
+    }
+}
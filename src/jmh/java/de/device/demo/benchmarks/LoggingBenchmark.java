@@ -0,0 +1,145 @@
+package de.device.demo.benchmarks;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import de.device.demo.filters.LogSamplingFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request threads logging one line per request, like DeviceController. The sync appender writes and flushes
+ * every event on the calling thread like the former ConsoleAppender, async only enqueues and drops when full,
+ * sampled additionally denies events beyond 100 per second before they are created.
+ * <p>
+ * Async never blocks, so its throughput mostly counts events that were discarded. The {@code logged} and
+ * {@code written} counters show how many calls were made and how many lines reached the file, compare
+ * those rather than the throughput alone. Events still queued when an iteration ends count for the next one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class LoggingBenchmark {
+
+    private static final String LOGGER = "de.device.demo.controllers.DeviceController";
+
+    @Param({"sync", "async", "async-sampled"})
+    private String mode;
+
+    private Path file;
+    private CountingFileAppender fileAppender;
+    private LoggerContext context;
+    private Logger logger;
+    private UUID id;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("logging-benchmark", ".log");
+        context = new LoggerContext();
+        id = UUID.randomUUID();
+
+        var encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level - %msg%n");
+        encoder.start();
+
+        fileAppender = new CountingFileAppender();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.toString());
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+
+        Appender<ILoggingEvent> appender = fileAppender;
+
+        if (!mode.equals("sync")) {
+            var asyncAppender = new AsyncAppender();
+            asyncAppender.setContext(context);
+            asyncAppender.setQueueSize(8192);
+            asyncAppender.setNeverBlock(true);
+            asyncAppender.addAppender(fileAppender);
+            asyncAppender.start();
+            appender = asyncAppender;
+        }
+
+        if (mode.equals("async-sampled")) {
+            var filter = new LogSamplingFilter();
+            filter.setContext(context);
+            filter.addLoggerName(LOGGER);
+            filter.setMaxPerSecond(100);
+            filter.setSampleRate(100);
+            filter.start();
+            context.addTurboFilter(filter);
+        }
+
+        logger = context.getLogger(LOGGER);
+        logger.setLevel(ch.qos.logback.classic.Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void request(Events events) {
+        logger.info("Update device id {}", id);
+        events.logged++;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Events {
+
+        public long logged;
+        public long written;
+        private long writtenBefore;
+
+        @Setup(Level.Iteration)
+        public void reset(LoggingBenchmark benchmark) {
+            logged = 0;
+            written = 0;
+            writtenBefore = benchmark.fileAppender.written(Thread.currentThread().getName());
+        }
+
+        @TearDown(Level.Iteration)
+        public void count(LoggingBenchmark benchmark) {
+            written = benchmark.fileAppender.written(Thread.currentThread().getName()) - writtenBefore;
+        }
+    }
+
+    /**
+     * Counts lines written per logging thread, the async appender keeps the caller's thread name on the event.
+     */
+    private static class CountingFileAppender extends FileAppender<ILoggingEvent> {
+
+        private final Map<String, LongAdder> written = new ConcurrentHashMap<>();
+
+        @Override
+        protected void subAppend(ILoggingEvent event) {
+            super.subAppend(event);
+            written.computeIfAbsent(event.getThreadName(), key -> new LongAdder()).increment();
+        }
+
+        long written(String threadName) {
+            var count = written.get(threadName);
+
+            return count == null ? 0 : count.sum();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package de.device.demo.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Models request handling that mostly waits on a 20 connection pool with a 3s acquisition timeout, comparing
+ * the 200 platform thread Tomcat pool with virtual threads, with and without the connection bulkhead.
+ * The bulkhead waits up to 10s like {@code devices.bulkhead.wait-timeout} in the virtual profile and then rejects,
+ * which ConnectionBulkheadFilter answers with 503. Sample time mode reports p99 request latency, timeouts counts
+ * requests failing to get a connection and rejections those turned away by the bulkhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1000)
+public class ThreadModelBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final int CONNECTION_POOL_SIZE = 20;
+    private static final long CONNECTION_TIMEOUT_MILLIS = 3000;
+    private static final long QUERY_MILLIS = 2;
+    private static final long BULKHEAD_WAIT_MILLIS = 10_000;
+
+    @Param({"platform", "virtual", "virtual-bulkhead"})
+    private String model;
+
+    private ExecutorService executor;
+    private Semaphore connectionPool;
+    private Semaphore bulkhead;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long timeouts;
+        public long rejections;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        connectionPool = new Semaphore(CONNECTION_POOL_SIZE, true);
+        bulkhead = model.equals("virtual-bulkhead") ? new Semaphore(CONNECTION_POOL_SIZE, true) : null;
+        executor = model.equals("platform")
+                ? Executors.newFixedThreadPool(PLATFORM_THREADS)
+                : Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Outcome request(Outcomes outcomes) throws Exception {
+        var outcome = executor.submit(this::handle).get();
+
+        if (outcome == Outcome.TIMED_OUT) {
+            outcomes.timeouts++;
+        } else if (outcome == Outcome.REJECTED) {
+            outcomes.rejections++;
+        }
+
+        return outcome;
+    }
+
+    private Outcome handle() throws InterruptedException {
+        if (bulkhead != null && !bulkhead.tryAcquire(BULKHEAD_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            return Outcome.REJECTED;
+        }
+
+        try {
+            if (!connectionPool.tryAcquire(CONNECTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return Outcome.TIMED_OUT;
+            }
+
+            try {
+                Thread.sleep(QUERY_MILLIS);
+
+                return Outcome.HANDLED;
+            } finally {
+                connectionPool.release();
+            }
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    public enum Outcome {
+        HANDLED,
+        TIMED_OUT,
+        REJECTED
+    }
+}
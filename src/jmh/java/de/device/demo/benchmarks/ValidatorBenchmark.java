@@ -0,0 +1,47 @@
+package de.device.demo.benchmarks;
+
+import de.device.demo.dtos.DevicePatchRequest;
+import de.device.demo.validators.AtLeastOneFieldValidator;
+import de.device.demo.validators.DeviceStateValid;
+import de.device.demo.validators.DeviceStateValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidatorBenchmark {
+
+    private final AtLeastOneFieldValidator atLeastOneFieldValidator = new AtLeastOneFieldValidator();
+    private final DeviceStateValidator deviceStateValidator = new DeviceStateValidator();
+
+    private final DevicePatchRequest stateOnlyRequest = new DevicePatchRequest(null, null, "IN_USE");
+    private final DevicePatchRequest emptyRequest = new DevicePatchRequest(null, null, null);
+
+    @Setup
+    public void setUp() throws NoSuchFieldException {
+        var constraint = DevicePatchRequest.class.getDeclaredField("state").getAnnotation(DeviceStateValid.class);
+        deviceStateValidator.initialize(constraint);
+    }
+
+    @Benchmark
+    public boolean atLeastOneFieldValid() {
+        return atLeastOneFieldValidator.isValid(stateOnlyRequest, null);
+    }
+
+    @Benchmark
+    public boolean atLeastOneFieldInvalid() {
+        return atLeastOneFieldValidator.isValid(emptyRequest, null);
+    }
+
+    @Benchmark
+    public boolean deviceStateValid() {
+        return deviceStateValidator.isValid("INACTIVE", null);
+    }
+
+    @Benchmark
+    public boolean deviceStateInvalid() {
+        return deviceStateValidator.isValid("__broken_value__", null);
+    }
+}
@@ -0,0 +1,62 @@
+package de.device.demo.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.device.demo.configs.ReplicaRoutingDataSource;
+import de.device.demo.entities.Device;
+import de.device.demo.events.DeviceChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of devices by id. Cached instances are detached and shared, treat them as read-only.
+ * <p>
+ * Loads run inside the cache's atomic compute, and invalidation of a key blocks until an in-flight load of the
+ * same key completes. Since invalidation happens after the writing transaction commits, a load that read the old
+ * row is always removed, and any later load reads the committed row. Loads read from the primary even with
+ * a replica, a lagging replica would otherwise put the pre-write row back into the cache for every client.
+ */
+@Component
+public class DeviceCache {
+
+    private final Cache<UUID, Device> cache;
+
+    @Autowired
+    public DeviceCache(
+            MeterRegistry meterRegistry,
+            @Value("${devices.cache.maximum-size}") long maximumSize,
+            @Value("${devices.cache.expire-after-write}") Duration expireAfterWrite
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "devices");
+    }
+
+    /**
+     * @return cached or loaded device, null when the loader finds nothing, misses are not cached
+     */
+    public Device get(UUID id, Function<UUID, Device> loader) {
+        return cache.get(id, key -> ReplicaRoutingDataSource.onPrimary(() -> loader.apply(key)));
+    }
+
+    public void invalidate(UUID id) {
+        cache.invalidate(id);
+    }
+
+    @TransactionalEventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        invalidate(event.id());
+    }
+}
@@ -0,0 +1,43 @@
+package de.device.demo.components;
+
+import de.device.demo.repositories.DeviceCountRepository;
+import de.device.demo.services.DeviceStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Periodically recounts devices for the maintained counts and the in-memory stats, correcting drift from rows
+ * written around the service, e.g. manual SQL or a rebuild racing with writes.
+ */
+@Component
+public class DeviceCountReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceCountReconciler.class);
+
+    private final DeviceCountRepository deviceCountRepository;
+    private final DeviceStatsService deviceStatsService;
+
+    @Autowired
+    public DeviceCountReconciler(DeviceCountRepository deviceCountRepository, DeviceStatsService deviceStatsService) {
+        this.deviceCountRepository = deviceCountRepository;
+        this.deviceStatsService = deviceStatsService;
+    }
+
+    @Transactional
+    @Scheduled(
+            initialDelayString = "${devices.counts.reconcile-interval}",
+            fixedDelayString = "${devices.counts.reconcile-interval}"
+    )
+    public void reconcile() {
+        var before = deviceCountRepository.countAll();
+        // The stats scan runs first, count rows are only locked by the corrections at the end
+        deviceStatsService.rebuild();
+        deviceCountRepository.rebuild();
+
+        log.info("Device counts reconciled, total {} was {}", deviceCountRepository.countAll(), before);
+    }
+}
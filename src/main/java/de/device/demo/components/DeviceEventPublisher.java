@@ -0,0 +1,14 @@
+package de.device.demo.components;
+
+import de.device.demo.entities.DeviceOutboxMessage;
+
+import java.util.List;
+
+/**
+ * Hands relayed outbox messages to downstream consumers, select an implementation with devices.outbox.publisher.
+ * Returning normally acknowledges the whole batch, throwing leaves it in the outbox to be retried,
+ * so consumers must tolerate duplicates.
+ */
+public interface DeviceEventPublisher {
+    void publish(List<DeviceOutboxMessage> messages);
+}
@@ -0,0 +1,98 @@
+package de.device.demo.components;
+
+import de.device.demo.entities.Device;
+import de.device.demo.entities.DeviceOutboxMessage;
+import de.device.demo.events.DeviceChangedEvent;
+import de.device.demo.repositories.DeviceOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes device changes into the outbox inside the writing transaction, so a change and its message are stored
+ * together or not at all. Messages are collected while the transaction runs and inserted once before commit,
+ * a batch create adds a few statements instead of one per device. Events must be published inside a transaction.
+ */
+@Component
+public class DeviceOutbox {
+
+    private final DeviceOutboxRepository deviceOutboxRepository;
+    private final DateTimeInterface dateTimeInterface;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public DeviceOutbox(
+            DeviceOutboxRepository deviceOutboxRepository,
+            DateTimeInterface dateTimeInterface,
+            ObjectMapper objectMapper
+    ) {
+        this.deviceOutboxRepository = deviceOutboxRepository;
+        this.dateTimeInterface = dateTimeInterface;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        pending().add(message(event, dateTimeInterface.now()));
+    }
+
+    /**
+     * Imported devices are announced like created ones, one message per device. Imports can be large, so the
+     * messages of each written chunk are inserted right away on the importing connection instead of before commit.
+     */
+    public void imported(List<Device> devices) {
+        var createdAt = dateTimeInterface.now();
+        var messages = new ArrayList<DeviceOutboxMessage>(devices.size());
+
+        for (var device : devices) {
+            messages.add(message(DeviceChangedEvent.created(device), createdAt));
+        }
+
+        deviceOutboxRepository.insertAll(messages);
+    }
+
+    private List<DeviceOutboxMessage> pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Device changes must be published inside a transaction");
+        }
+
+        @SuppressWarnings("unchecked")
+        var messages = (List<DeviceOutboxMessage>) TransactionSynchronizationManager.getResource(this);
+
+        if (messages == null) {
+            var created = new ArrayList<DeviceOutboxMessage>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    deviceOutboxRepository.insertAll(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DeviceOutbox.this);
+                }
+            });
+
+            return created;
+        }
+
+        return messages;
+    }
+
+    private DeviceOutboxMessage message(DeviceChangedEvent event, LocalDateTime createdAt) {
+        return new DeviceOutboxMessage(
+                event.id(),
+                event.type().name(),
+                objectMapper.writeValueAsString(event),
+                createdAt
+        );
+    }
+}
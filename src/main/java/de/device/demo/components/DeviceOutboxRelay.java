@@ -0,0 +1,111 @@
+package de.device.demo.components;
+
+import de.device.demo.entities.DeviceOutboxMessage;
+import de.device.demo.repositories.DeviceOutboxRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * Moves outbox messages to the {@link DeviceEventPublisher} in batches. Each batch is claimed with
+ * SELECT ... FOR UPDATE SKIP LOCKED, published and deleted in one transaction, so several instances
+ * relay in parallel without handing out the same message twice, and a failed publish is retried.
+ */
+@Component
+public class DeviceOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceOutboxRelay.class);
+
+    private final DeviceOutboxRepository deviceOutboxRepository;
+    private final DeviceEventPublisher deviceEventPublisher;
+    private final DeviceShards deviceShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeInterface dateTimeInterface;
+    private final int batchSize;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer lagTimer;
+
+    @Autowired
+    public DeviceOutboxRelay(
+            DeviceOutboxRepository deviceOutboxRepository,
+            DeviceEventPublisher deviceEventPublisher,
+            DeviceShards deviceShards,
+            TransactionTemplate transactionTemplate,
+            DateTimeInterface dateTimeInterface,
+            MeterRegistry meterRegistry,
+            @Value("${devices.outbox.batch-size}") int batchSize
+    ) {
+        this.deviceOutboxRepository = deviceOutboxRepository;
+        this.deviceEventPublisher = deviceEventPublisher;
+        this.deviceShards = deviceShards;
+        this.transactionTemplate = transactionTemplate;
+        this.dateTimeInterface = dateTimeInterface;
+        this.batchSize = batchSize;
+        this.batchSizeSummary = DistributionSummary.builder("devices.outbox.batch.size")
+                .description("Messages relayed per outbox batch")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("devices.outbox.lag")
+                .description("Time from writing a message to the outbox until it was published")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Keeps relaying while batches come back full, then waits for the next poll. With sharding every shard
+     * has its own outbox, they are relayed one after another.
+     */
+    @Scheduled(fixedDelayString = "${devices.outbox.poll-interval}")
+    public void relay() {
+        for (int shard = 0; shard < deviceShards.count(); shard++) {
+            deviceShards.onShard(shard, this::relayShard);
+        }
+    }
+
+    private Void relayShard() {
+        try {
+            Integer relayed;
+
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } while (relayed != null && relayed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Device outbox relay failed, messages stay in the outbox for the next run", e);
+        }
+
+        return null;
+    }
+
+    private int relayBatch() {
+        var messages = deviceOutboxRepository.claimBatch(PageRequest.of(0, batchSize));
+
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        deviceEventPublisher.publish(messages);
+
+        var ids = new ArrayList<Long>(messages.size());
+        var now = dateTimeInterface.now();
+
+        for (DeviceOutboxMessage message : messages) {
+            ids.add(message.getId());
+            lagTimer.record(Duration.between(message.getCreatedAt(), now));
+        }
+
+        deviceOutboxRepository.deleteAllByIdInBatch(ids);
+        batchSizeSummary.record(messages.size());
+
+        return messages.size();
+    }
+}
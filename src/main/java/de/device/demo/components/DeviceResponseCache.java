@@ -0,0 +1,73 @@
+package de.device.demo.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.device.demo.dtos.DeviceResponse;
+import de.device.demo.entities.Device;
+import de.device.demo.events.DeviceChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.UUID;
+
+/**
+ * Serialized {@link DeviceResponse} JSON per device id and version, bounded by the total size of the cached bytes.
+ * <p>
+ * An entry is only served for the version it was serialized from, so a response built from a device read before
+ * a concurrent write can never be returned for the newer version. Writes also drop the entry once committed.
+ */
+@Component
+public class DeviceResponseCache {
+
+    // Rough per entry footprint besides the JSON itself: the key, the entry and the array header
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<UUID, Entry> cache;
+
+    @Autowired
+    public DeviceResponseCache(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${devices.response-cache.maximum-size}") DataSize maximumSize
+    ) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((UUID id, Entry entry) -> entry.json().length + ENTRY_OVERHEAD_BYTES)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "device_responses");
+    }
+
+    /**
+     * @return UTF-8 JSON of the device, the returned array is shared and must not be modified
+     */
+    public byte[] json(Device device) {
+        var entry = cache.getIfPresent(device.getId());
+
+        if (entry != null && entry.version() == device.getVersion()) {
+            return entry.json();
+        }
+
+        var json = objectMapper.writeValueAsBytes(new DeviceResponse(device));
+        cache.put(device.getId(), new Entry(device.getVersion(), json));
+
+        return json;
+    }
+
+    @TransactionalEventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        cache.invalidate(event.id());
+    }
+
+    private record Entry(long version, byte[] json) {
+    }
+}
@@ -0,0 +1,356 @@
+package de.device.demo.components;
+
+import de.device.demo.dtos.DeviceView;
+import de.device.demo.entities.Device;
+import de.device.demo.errors.DeviceExportUnsupportedException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Routes repository calls in sharded mode, the repositories and services stay unaware of shards.
+ * <ul>
+ * <li>Calls naming a device by id bind the transaction to the device's shard.</li>
+ * <li>Page and list queries run on every shard, each fetching everything up to the end of the requested page,
+ * and are merged in the requested order, so deep offsets cost every shard the whole prefix.</li>
+ * <li>Counts are summed, count rebuilds run per shard, batches and imports are written per shard, each in its
+ * own transaction, so they are no longer atomic across shards.</li>
+ * <li>Exports keep a database cursor open in one transaction on one shard and are rejected with 501.</li>
+ * </ul>
+ * The merge compares the way the databases sort: states by their stored name, ids as unsigned bytes, and names
+ * and brands by code point. The last only matches a binary collation such as {@code "C"} on PostgreSQL, with a
+ * linguistic collation pages sorted by name or brand may interleave out of order where shards meet.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "devices.sharding.enabled", havingValue = "true")
+public class DeviceShardRouter {
+
+    // Ids compare like the databases do, as 16 unsigned bytes, UUID.compareTo compares signed halves
+    private static final Comparator<UUID> ID_ORDER = Comparator.comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    // Keyset queries order by creation time and id themselves
+    private static final Comparator<DeviceView> KEYSET_ORDER = Comparator.comparing(DeviceView::creationTime)
+            .thenComparing(DeviceView::id, ID_ORDER);
+
+    // Devices buffered per shard during an import before they are written
+    private static final int IMPORT_CHUNK_SIZE = 10_000;
+
+    private final DeviceShards deviceShards;
+    private final TransactionTemplate newTransaction;
+
+    @Autowired
+    public DeviceShardRouter(DeviceShards deviceShards, PlatformTransactionManager transactionManager) {
+        this.deviceShards = deviceShards;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Around("execution(* de.device.demo.repositories.DeviceWriteRepository.*(..))"
+            + " || (target(de.device.demo.repositories.DeviceRepository)"
+            + " && (execution(* findById(..)) || execution(* existsById(..))"
+            + " || execution(* save(..)) || execution(* deleteById(..))))")
+    public Object routeById(ProceedingJoinPoint joinPoint) throws Throwable {
+        var id = switch (joinPoint.getArgs()[0]) {
+            case UUID uuid -> uuid;
+            case Device device -> device.getId();
+            default -> throw new IllegalStateException("No device id in " + joinPoint.getSignature());
+        };
+        var shard = deviceShards.shardOf(id);
+        var bound = DeviceShards.current();
+
+        if (bound != null) {
+            if (bound != shard) {
+                throw new IllegalStateException("Device " + id + " is on shard " + shard + " but the call runs on shard " + bound);
+            }
+
+            return joinPoint.proceed();
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return deviceShards.onShard(shard, () -> proceed(joinPoint, joinPoint.getArgs()));
+        }
+
+        // Inserts may only be flushed at commit, the transaction stays on the shard until it completes
+        deviceShards.bind(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                deviceShards.unbind();
+            }
+        });
+
+        return joinPoint.proceed();
+    }
+
+    @Around("target(de.device.demo.repositories.DeviceRepository)"
+            + " && execution(java.util.List find*Keyset*(..))")
+    public Object scatterKeyset(ProceedingJoinPoint joinPoint) {
+        var args = joinPoint.getArgs();
+        var pageable = (Pageable) args[args.length - 1];
+
+        return merge(scatter(joinPoint, args), KEYSET_ORDER, 0, pageable.getPageSize());
+    }
+
+    @Around("target(de.device.demo.repositories.DeviceRepository)"
+            + " && execution(java.util.List findViewContent*(..))")
+    public Object scatterContent(ProceedingJoinPoint joinPoint) {
+        var args = joinPoint.getArgs();
+        var pageable = (Pageable) args[args.length - 1];
+
+        args[args.length - 1] = prefixOf(pageable);
+
+        return merge(scatter(joinPoint, args), orderOf(pageable.getSort()), pageable.getOffset(), pageable.getPageSize());
+    }
+
+    @Around("target(de.device.demo.repositories.DeviceRepository)"
+            + " && execution(org.springframework.data.domain.Page findViews*(..))")
+    public Object scatterPage(ProceedingJoinPoint joinPoint) {
+        var args = joinPoint.getArgs();
+        var pageable = (Pageable) args[args.length - 1];
+
+        args[args.length - 1] = prefixOf(pageable);
+
+        var pages = deviceShards.scatter(shard -> (Page<?>) proceed(joinPoint, args.clone()));
+        var content = new ArrayList<List<?>>(pages.size());
+        long total = 0;
+
+        for (var page : pages) {
+            content.add(page.getContent());
+            total += page.getTotalElements();
+        }
+
+        return new PageImpl<>(merge(content, orderOf(pageable.getSort()), pageable.getOffset(), pageable.getPageSize()), pageable, total);
+    }
+
+    @Around("target(de.device.demo.repositories.DeviceRepository) && execution(* findStatsBuckets(..))")
+    public Object scatterStats(ProceedingJoinPoint joinPoint) {
+        var buckets = new ArrayList<>();
+
+        for (var shardBuckets : scatter(joinPoint, joinPoint.getArgs())) {
+            buckets.addAll(shardBuckets);
+        }
+
+        return buckets;
+    }
+
+    @Around("target(de.device.demo.repositories.DeviceRepository) && execution(* stream*(..))")
+    public Object rejectStream(ProceedingJoinPoint joinPoint) {
+        throw new DeviceExportUnsupportedException("devices are sharded");
+    }
+
+    @Around("execution(long de.device.demo.repositories.DeviceCountRepository.count*(..))")
+    public Object sumCounts(ProceedingJoinPoint joinPoint) {
+        var args = joinPoint.getArgs();
+
+        return deviceShards.scatter(shard -> (Long) proceed(joinPoint, args.clone()))
+                .stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    @Around("execution(void de.device.demo.repositories.DeviceCountRepository.rebuild())")
+    public Object rebuildPerShard(ProceedingJoinPoint joinPoint) {
+        for (int shard = 0; shard < deviceShards.count(); shard++) {
+            deviceShards.onShard(shard, () -> newTransaction.execute(status -> proceed(joinPoint, joinPoint.getArgs())));
+        }
+
+        return null;
+    }
+
+    @Around("execution(void de.device.demo.repositories.DeviceBatchRepository.persistAll(java.util.List))")
+    public Object persistPerShard(ProceedingJoinPoint joinPoint) throws Throwable {
+        @SuppressWarnings("unchecked")
+        var devices = (List<Device>) joinPoint.getArgs()[0];
+        var bound = DeviceShards.current();
+
+        // Import chunks are already written in a transaction on their shard
+        if (bound != null) {
+            for (var device : devices) {
+                if (deviceShards.shardOf(device.getId()) != bound) {
+                    throw new IllegalStateException("Device " + device.getId() + " does not belong to shard " + bound);
+                }
+            }
+
+            return joinPoint.proceed();
+        }
+
+        var devicesByShard = new TreeMap<Integer, List<Device>>();
+
+        for (var device : devices) {
+            devicesByShard.computeIfAbsent(deviceShards.shardOf(device.getId()), shard -> new ArrayList<>()).add(device);
+        }
+
+        devicesByShard.forEach((shard, shardDevices) -> deviceShards.onShard(
+                shard,
+                () -> newTransaction.execute(status -> proceed(joinPoint, new Object[]{shardDevices}))
+        ));
+
+        return null;
+    }
+
+    /**
+     * Imports are split into chunks per shard, each written in its own transaction on its shard, so COPY and
+     * the batched inserts both reach the shard the device belongs to. No connection of the caller's transaction
+     * is taken, that transaction only holds the count and outbox writes.
+     */
+    @Around("execution(long de.device.demo.repositories.DeviceImportRepository.writeAll(java.util.Iterator, java.util.function.Consumer))")
+    public Object writePerShard(ProceedingJoinPoint joinPoint) {
+        @SuppressWarnings("unchecked")
+        var devices = (Iterator<Device>) joinPoint.getArgs()[0];
+        var chunks = new ArrayList<List<Device>>(deviceShards.count());
+        long written = 0;
+
+        for (int shard = 0; shard < deviceShards.count(); shard++) {
+            chunks.add(new ArrayList<>());
+        }
+
+        while (devices.hasNext()) {
+            var device = devices.next();
+            var shard = deviceShards.shardOf(device.getId());
+            var chunk = chunks.get(shard);
+
+            chunk.add(device);
+
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                written += writeChunk(joinPoint, shard, chunk);
+            }
+        }
+
+        for (int shard = 0; shard < chunks.size(); shard++) {
+            written += writeChunk(joinPoint, shard, chunks.get(shard));
+        }
+
+        return written;
+    }
+
+    private long writeChunk(ProceedingJoinPoint joinPoint, int shard, List<Device> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        var written = deviceShards.onShard(
+                shard,
+                () -> newTransaction.execute(status -> (Long) proceed(joinPoint, new Object[]{chunk.iterator(), joinPoint.getArgs()[1]}))
+        );
+        chunk.clear();
+
+        return written;
+    }
+
+    private List<List<?>> scatter(ProceedingJoinPoint joinPoint, Object[] args) {
+        return deviceShards.scatter(shard -> (List<?>) proceed(joinPoint, args.clone()));
+    }
+
+    /**
+     * K-way merge of the shard results, each already in order, skipping to the offset.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<?> merge(List<List<?>> shardResults, Comparator order, long offset, int limit) {
+        var heads = new PriorityQueue<Head>((a, b) -> order.compare(a.value(), b.value()));
+
+        for (var results : shardResults) {
+            if (!results.isEmpty()) {
+                heads.add(new Head(results, 0));
+            }
+        }
+
+        var merged = new ArrayList<>(limit);
+        long skipped = 0;
+
+        while (!heads.isEmpty() && merged.size() < limit) {
+            var head = heads.poll();
+
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                merged.add(head.value());
+            }
+
+            if (head.index() + 1 < head.results().size()) {
+                heads.add(new Head(head.results(), head.index() + 1));
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Everything up to the end of the page, with the id as tie breaker so shards and the merge agree on the order.
+     */
+    private static Pageable prefixOf(Pageable pageable) {
+        var sort = pageable.getSort().and(Sort.by("id"));
+
+        return PageRequest.of(0, (int) (pageable.getOffset() + pageable.getPageSize()), sort);
+    }
+
+    private static Comparator<DeviceView> orderOf(Sort sort) {
+        Comparator<DeviceView> order = null;
+
+        for (var sortOrder : sort) {
+            var property = switch (sortOrder.getProperty()) {
+                case "id" -> Comparator.comparing(DeviceView::id, ID_ORDER);
+                case "name" -> comparing(DeviceView::name);
+                case "brand" -> comparing(DeviceView::brand);
+                // Stored as the enum name, the ordinal order differs
+                case "state" -> comparing(device -> device.state() == null ? null : device.state().name());
+                case "creationTime" -> comparing(DeviceView::creationTime);
+                default -> throw new IllegalArgumentException("Unknown sort property " + sortOrder.getProperty());
+            };
+
+            if (sortOrder.isDescending()) {
+                property = property.reversed();
+            }
+
+            order = order == null ? property : order.thenComparing(property);
+        }
+
+        var byId = Comparator.comparing(DeviceView::id, ID_ORDER);
+
+        return order == null ? byId : order.thenComparing(byId);
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<DeviceView> comparing(Function<DeviceView, T> property) {
+        return Comparator.comparing(property, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    private static Object proceed(ProceedingJoinPoint joinPoint, Object[] args) {
+        try {
+            return joinPoint.proceed(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Head(List<?> results, int index) {
+
+        Object value() {
+            return results.get(index);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.device.demo.components;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Device shards and the thread's current shard, which decides where the sharded DataSource takes connections from.
+ * Without sharding there is a single shard and binding it changes nothing.
+ * <p>
+ * Ids are placed on a consistent hash ring with virtual nodes per shard, so adding a shard at the end only moves
+ * the ids that now belong to it.
+ */
+@Component
+public class DeviceShards implements DisposableBean {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private static final ThreadLocal<Integer> current = new ThreadLocal<>();
+
+    private final int count;
+    private final long[] ring;
+    private final int[] owners;
+    private final ExecutorService scatterExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public DeviceShards(
+            @Value("${devices.sharding.enabled:false}") boolean enabled,
+            @Value("${devices.sharding.urls:}") String[] urls
+    ) {
+        this.count = enabled ? urls.length : 1;
+
+        if (count < 1) {
+            throw new IllegalArgumentException("Sharding needs at least one shard url");
+        }
+
+        var nodes = new long[count * VIRTUAL_NODES][];
+
+        for (int shard = 0; shard < count; shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                nodes[shard * VIRTUAL_NODES + node] = new long[]{hash("shard-" + shard + "-" + node), shard};
+            }
+        }
+
+        Arrays.sort(nodes, (a, b) -> Long.compare(a[0], b[0]));
+
+        this.ring = new long[nodes.length];
+        this.owners = new int[nodes.length];
+
+        for (int i = 0; i < nodes.length; i++) {
+            ring[i] = nodes[i][0];
+            owners[i] = (int) nodes[i][1];
+        }
+    }
+
+    /**
+     * @return shard bound to the current thread, null when none is
+     */
+    public static Integer current() {
+        return current.get();
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int shardOf(UUID id) {
+        if (count == 1) {
+            return 0;
+        }
+
+        // Time ordered ids share their high bits, mix both halves before placing them on the ring
+        var position = Arrays.binarySearch(ring, mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits())));
+
+        if (position < 0) {
+            position = -position - 1;
+        }
+
+        return owners[position == ring.length ? 0 : position];
+    }
+
+    /**
+     * Binds the current thread to the shard while the action runs. Transactions must start inside the action,
+     * a transaction that already holds a connection stays on its shard.
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        var previous = current.get();
+        current.set(shard);
+
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Binds the current thread to the shard until {@link #unbind()}, for transactions whose connection
+     * is only fetched after the call that decided the shard.
+     */
+    public void bind(int shard) {
+        current.set(shard);
+    }
+
+    public void unbind() {
+        current.remove();
+    }
+
+    /**
+     * Runs the action on every shard in parallel, each on its own virtual thread outside the caller's transaction.
+     *
+     * @return results in shard order
+     */
+    public <T> List<T> scatter(IntFunction<T> action) {
+        if (count == 1) {
+            return List.of(onShard(0, () -> action.apply(0)));
+        }
+
+        var futures = new ArrayList<Future<T>>(count);
+
+        for (int shard = 0; shard < count; shard++) {
+            var target = shard;
+            futures.add(scatterExecutor.submit(() -> onShard(target, () -> action.apply(target))));
+        }
+
+        var results = new ArrayList<T>(count);
+
+        try {
+            for (var future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+
+        return results;
+    }
+
+    @Override
+    public void destroy() {
+        scatterExecutor.shutdownNow();
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+
+        return value;
+    }
+}
@@ -0,0 +1,23 @@
+package de.device.demo.components;
+
+import de.device.demo.entities.DeviceOutboxMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "devices.outbox.publisher", havingValue = "log", matchIfMissing = true)
+public class LogDeviceEventPublisher implements DeviceEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(LogDeviceEventPublisher.class);
+
+    @Override
+    public void publish(List<DeviceOutboxMessage> messages) {
+        for (var message : messages) {
+            log.info("Device event {} {} {}", message.getId(), message.getType(), message.getPayload());
+        }
+    }
+}
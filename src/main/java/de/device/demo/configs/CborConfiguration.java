@@ -0,0 +1,87 @@
+package de.device.demo.configs;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationContext;
+import tools.jackson.databind.JacksonModule;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.deser.std.StdDeserializer;
+import tools.jackson.databind.module.SimpleModule;
+import tools.jackson.databind.ser.std.StdSerializer;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Serves and accepts {@code application/cbor} next to JSON on the API endpoints, picked by Accept and Content-Type.
+ * UUIDs are written as 16 byte binary since CBOR supports it natively, date times as epoch milliseconds instead
+ * of the formatted JSON string. Date times carry no zone, they are converted as if they were UTC.
+ * <p>
+ * A missing or wildcard Accept header resolves to JSON first, so handlers split by produced type stay
+ * unambiguous and JSON remains the default, other types are still matched through the trailing wildcard.
+ */
+@Configuration
+public class CborConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
+        configurer.defaultContentType(MediaType.APPLICATION_JSON, MediaType.ALL);
+    }
+
+    @Bean
+    public JacksonCborHttpMessageConverter cborHttpMessageConverter(ObjectProvider<JacksonModule> modules) {
+        var builder = cborMapperBuilder();
+        modules.orderedStream().forEach(builder::addModule);
+
+        return new JacksonCborHttpMessageConverter(builder.build());
+    }
+
+    /**
+     * Also used by tests and benchmarks to read and write the same representation.
+     */
+    public static CBORMapper.Builder cborMapperBuilder() {
+        var epochTimes = new SimpleModule("epoch-times")
+                .addSerializer(LocalDateTime.class, new EpochMillisSerializer())
+                .addDeserializer(LocalDateTime.class, new EpochMillisDeserializer());
+
+        return CBORMapper.builder().addModule(epochTimes);
+    }
+
+    private static class EpochMillisSerializer extends StdSerializer<LocalDateTime> {
+
+        EpochMillisSerializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator generator, SerializationContext context) {
+            generator.writeNumber(value.toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+    }
+
+    private static class EpochMillisDeserializer extends StdDeserializer<LocalDateTime> {
+
+        EpochMillisDeserializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) {
+            if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+                return LocalDateTime.ofInstant(Instant.ofEpochMilli(parser.getLongValue()), ZoneOffset.UTC);
+            }
+
+            return LocalDateTime.parse(parser.getString());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package de.device.demo.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a replica pool and everything else to the primary pool, enabled by setting
+ * {@code devices.datasource.replica.url}.
+ * <p>
+ * The lazy proxy only fetches a connection on the first statement, after the transaction marked it read-only,
+ * and then takes it from the replica routing. Both pools are beans, so each gets its own Hikari metrics
+ * tagged with the pool name.
+ */
+@Configuration
+@ConditionalOnProperty(name = "devices.datasource.replica.url")
+public class ReplicaConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        var dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("devices.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${devices.datasource.replica.url}") String url,
+            @Value("${devices.datasource.replica.username:}") String username,
+            @Value("${devices.datasource.replica.password:}") String password
+    ) {
+        var dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            MeterRegistry meterRegistry
+    ) {
+        var dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, meterRegistry));
+
+        return dataSource;
+    }
+
+    /**
+     * Local replicas are independent databases, the schema is migrated on them as well.
+     * Real replicas get it through replication. Flyway connects on its own, the pool hands out read-only
+     * connections, so an in-memory replica needs {@code DB_CLOSE_DELAY=-1} to outlive the migration.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "devices.datasource.replica.migrate", havingValue = "true")
+    public InitializingBean replicaMigration(
+            @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+            @Value("${spring.flyway.locations}") String[] locations
+    ) {
+        return () -> Flyway.configure()
+                .dataSource(replicaDataSource.getJdbcUrl(), replicaDataSource.getUsername(), replicaDataSource.getPassword())
+                .locations(locations)
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,82 @@
+package de.device.demo.configs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Source of read-only connections, the replica unless the current request is pinned to the primary because
+ * the client wrote recently and the replica may not have caught up yet.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private static final ThreadLocal<Boolean> pinned = new ThreadLocal<>();
+
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry meterRegistry) {
+        this.primaryReads = readCounter(meterRegistry, PRIMARY);
+        this.replicaReads = readCounter(meterRegistry, REPLICA);
+
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(replica);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Routes read-only connections of the current thread to the primary until {@link #unpin()}.
+     */
+    public static void pinToPrimary() {
+        pinned.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        pinned.remove();
+    }
+
+    /**
+     * Runs the action with read-only connections routed to the primary, keeping an outer pin in place.
+     * Without a replica this only sets and clears a thread local.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (pinned.get() != null) {
+            return action.get();
+        }
+
+        pinToPrimary();
+
+        try {
+            return action.get();
+        } finally {
+            unpin();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (pinned.get() != null) {
+            primaryReads.increment();
+
+            return PRIMARY;
+        }
+
+        replicaReads.increment();
+
+        return REPLICA;
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("devices.datasource.read.connections")
+                .description("Read-only connections by the pool they were routed to")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
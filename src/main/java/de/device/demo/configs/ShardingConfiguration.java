@@ -0,0 +1,80 @@
+package de.device.demo.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+
+/**
+ * Spreads devices over the databases listed in {@code devices.sharding.urls}, enabled by
+ * {@code devices.sharding.enabled}. Not combined with the read replica.
+ * <p>
+ * The lazy proxy only fetches a connection on the first statement, so the shard bound by
+ * {@code DeviceShardRouter} when a repository call names the device decides which database it comes from.
+ */
+@Configuration
+@ConditionalOnProperty(name = "devices.sharding.enabled", havingValue = "true")
+public class ShardingConfiguration {
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            MeterRegistry meterRegistry,
+            @Value("${devices.sharding.urls}") String[] urls,
+            @Value("${devices.sharding.username:}") String username,
+            @Value("${devices.sharding.password:}") String password,
+            @Value("${devices.sharding.maximum-pool-size:10}") int maximumPoolSize
+    ) {
+        var shards = new ArrayList<HikariDataSource>(urls.length);
+
+        for (int shard = 0; shard < urls.length; shard++) {
+            var dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(urls[shard].strip())
+                    .username(username)
+                    .password(password)
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            // Only the default shard would be found by Boot's pool metrics, each pool reports itself instead
+            dataSource.setMetricRegistry(meterRegistry);
+            shards.add(dataSource);
+        }
+
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * Boot's Flyway only reaches the default shard, every shard is migrated here before the application starts.
+     */
+    @Bean
+    public InitializingBean shardMigrations(
+            ShardRoutingDataSource shardRoutingDataSource,
+            @Value("${spring.flyway.locations}") String[] locations
+    ) {
+        return () -> {
+            for (var shard : shardRoutingDataSource.getShards()) {
+                Flyway.configure()
+                        .dataSource(shard)
+                        .locations(locations)
+                        .load()
+                        .migrate();
+            }
+        };
+    }
+}
@@ -1,27 +1,61 @@
 package de.device.demo.controllers;
 
+import de.device.demo.components.DeviceResponseCache;
+import de.device.demo.dtos.DeviceBatchItemResponse;
 import de.device.demo.dtos.DeviceCreateRequest;
+import de.device.demo.dtos.DeviceCursorPageResponse;
+import de.device.demo.dtos.DeviceImportResponse;
 import de.device.demo.dtos.DevicePutRequest;
 import de.device.demo.dtos.DeviceResponse;
+import de.device.demo.dtos.DeviceStatsResponse;
 import de.device.demo.dtos.DevicePatchRequest;
+import de.device.demo.dtos.DeviceView;
 import de.device.demo.entities.Device;
+import de.device.demo.models.DeviceCursor;
+import de.device.demo.models.DeviceFilter;
+import de.device.demo.models.DeviceImportFormat;
 import de.device.demo.models.DeviceState;
+import de.device.demo.services.DeviceImportService;
 import de.device.demo.services.DeviceService;
+import de.device.demo.services.DeviceStatsService;
+import de.device.demo.services.DeviceStreamService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Tag(name = "Device REST API", description = "Manage Devices entries")
@@ -31,11 +65,39 @@ public class DeviceController {
 
     private static final Logger log = LoggerFactory.getLogger(DeviceController.class);
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 2000;
+
     private final DeviceService deviceService;
+    private final DeviceImportService deviceImportService;
+    private final DeviceStatsService deviceStatsService;
+    private final DeviceStreamService deviceStreamService;
+    private final DeviceResponseCache deviceResponseCache;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final Map<String, DistributionSummary> listRows;
+    private final int maxBatchItems;
 
     @Autowired
-    public DeviceController(DeviceService deviceService) {
+    public DeviceController(
+            DeviceService deviceService,
+            DeviceImportService deviceImportService,
+            DeviceStatsService deviceStatsService,
+            DeviceStreamService deviceStreamService,
+            DeviceResponseCache deviceResponseCache,
+            Validator validator,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${devices.batch.max-items}") int maxBatchItems
+    ) {
         this.deviceService = deviceService;
+        this.deviceImportService = deviceImportService;
+        this.deviceStatsService = deviceStatsService;
+        this.deviceStreamService = deviceStreamService;
+        this.deviceResponseCache = deviceResponseCache;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.listRows = listRowSummaries(meterRegistry);
+        this.maxBatchItems = maxBatchItems;
     }
 
     @Tag(name = "create", description = "Create new Device entry with default state")
@@ -51,82 +113,318 @@ public class DeviceController {
         return new ResponseEntity<>(responseDto, HttpStatus.CREATED);
     }
 
+    @Tag(name = "create batch", description = "Create new Device entries in one request, result is reported per item")
+    @PostMapping("/batch")
+    public List<DeviceBatchItemResponse> createDevices(@RequestBody List<DeviceCreateRequest> deviceCreateRequests) {
+        log.info("Create batch request of {} devices", deviceCreateRequests.size());
+
+        if (deviceCreateRequests.isEmpty() || deviceCreateRequests.size() > maxBatchItems) {
+            throw new IllegalArgumentException("Batch should contain between 1 and " + maxBatchItems + " devices");
+        }
+
+        var results = new DeviceBatchItemResponse[deviceCreateRequests.size()];
+        var validRequests = new ArrayList<DeviceCreateRequest>(deviceCreateRequests.size());
+        var validIndexes = new ArrayList<Integer>(deviceCreateRequests.size());
+
+        for (int i = 0; i < deviceCreateRequests.size(); i++) {
+            var request = deviceCreateRequests.get(i);
+
+            if (request == null) {
+                results[i] = DeviceBatchItemResponse.rejected(i, Map.of("message", "Device is required"));
+                continue;
+            }
+
+            var violations = validator.validate(request);
+
+            if (violations.isEmpty()) {
+                validRequests.add(request);
+                validIndexes.add(i);
+            } else {
+                var errors = new HashMap<String, String>();
+                violations.forEach(violation -> errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+                results[i] = DeviceBatchItemResponse.rejected(i, errors);
+            }
+        }
+
+        if (!validRequests.isEmpty()) {
+            var created = deviceService.createAll(validRequests);
+
+            for (int i = 0; i < created.size(); i++) {
+                int index = validIndexes.get(i);
+                results[index] = DeviceBatchItemResponse.created(index, new DeviceResponse(created.get(i)));
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @Tag(name = "import", description = "Bulk import devices from CSV with header or newline delimited JSON, rows are validated one by one")
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public DeviceImportResponse importDevices(HttpServletRequest request) throws IOException {
+        var format = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? DeviceImportFormat.NDJSON
+                : DeviceImportFormat.CSV;
+
+        log.info("Import devices request format {}", format);
+
+        var result = deviceImportService.importDevices(request.getInputStream(), format);
+
+        log.info("Import devices accepted {} rejected {}", result.accepted(), result.rejected());
+
+        return new DeviceImportResponse(result);
+    }
+
     @Tag(name = "find", description = "Find device by device id provided as path variable")
-    @GetMapping("/{id}")
-    public ResponseEntity<@NonNull DeviceResponse> device(@PathVariable("id") UUID id) {
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = DeviceResponse.class))
+    )
+    public ResponseEntity<byte[]> device(@PathVariable("id") UUID id, WebRequest request) {
         log.info("Find device request id {}", id);
 
-        return new ResponseEntity<>(
-                new DeviceResponse(deviceService.getById(id)),
-                HttpStatus.OK
-        );
+        var device = deviceService.getById(id);
+        var eTag = eTag(device);
+
+        // A matching If-None-Match is answered with 304, the body is never looked up
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        // Cached JSON bytes are written as they are, without going through the object mapper
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(deviceResponseCache.json(device));
+    }
+
+    @Tag(name = "find", description = "Find device by device id provided as path variable")
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<DeviceResponse> deviceCbor(@PathVariable("id") UUID id, WebRequest request) {
+        log.info("Find device request id {} as CBOR", id);
+
+        var device = deviceService.getById(id);
+        var eTag = eTag(device);
+
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(new DeviceResponse(device));
     }
 
-    @Tag(name = "find all", description = "Find all devices or also search by brand name or state")
+    @Tag(name = "find all", description = "Find all devices or also search by any mix of brand name, state and creation time range")
     @GetMapping
-    public Page<@NonNull DeviceResponse> devices(
+    public Page<@NonNull DeviceView> devices(
             @RequestParam(required = false) String brand,
             @RequestParam(required = false) String state,
+            @RequestParam(name = "created_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(name = "created_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(name = "exact_count", defaultValue = "false") boolean exactCount,
             @ParameterObject @PageableDefault(size = 100) Pageable pageable
     ) {
-        log.info("Find devices request brand {} and state {}", brand, state);
+        log.info("Find devices request brand {}, state {}, created from {} to {}", brand, state, createdFrom, createdTo);
 
-        Page<Device> devices;
+        var filter = new DeviceFilter(brand, state == null ? null : parseState(state), createdFrom, createdTo);
+        Page<DeviceView> devices;
+        String query;
 
-        if (brand == null && state == null) {
-            devices = deviceService.getDevices(pageable);
+        // Combined filters and ranges aren't covered by the maintained counts and are always counted exactly
+        if (filter.hasCreationTimeRange() || (brand != null && state != null)) {
+            devices = deviceService.getDevicesByFilter(filter, pageable);
+            query = "filter";
         } else if (brand != null) {
-            devices = deviceService.getDevicesByBrand(brand, pageable);
+            devices = deviceService.getDevicesByBrand(brand, pageable, exactCount);
+            query = "brand";
+        } else if (state != null) {
+            devices = deviceService.getDevicesByState(filter.state(), pageable, exactCount);
+            query = "state";
         } else {
-            try {
-                var stateValue = DeviceState.valueOf(state);
-                devices = deviceService.getDevicesByState(stateValue, pageable);
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Device state value is incorrect use: " + DeviceState.getValuesDescription());
-            }
+            devices = deviceService.getDevices(pageable, exactCount);
+            query = "all";
+        }
+
+        recordRows(query, devices.getNumberOfElements());
+
+        return devices;
+    }
+
+    @Tag(name = "stats", description = "Device totals per state, per brand and state, and per creation month and state")
+    @GetMapping("/stats")
+    public DeviceStatsResponse stats() {
+        return new DeviceStatsResponse(deviceStatsService.getStats());
+    }
+
+    @Tag(name = "stream", description = "Stream committed device changes as server-sent events, also filter by brand name and state")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String state,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        log.info("Device stream request brand {} and state {}, last event id {}", brand, state, lastEventId);
+
+        return deviceStreamService.subscribe(brand, state == null ? null : parseState(state), lastEventId);
+    }
+
+    @Tag(name = "find all by cursor", description = "Find devices page by page following next_cursor token, also search by brand name and state")
+    @GetMapping("/cursor")
+    public DeviceCursorPageResponse devicesByCursor(
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        log.info("Find devices by cursor request brand {} and state {}", brand, state);
+
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size should be between 1 and " + MAX_CURSOR_PAGE_SIZE);
         }
 
-        var devicesResponse = devices.stream().parallel()
-                .map(DeviceResponse::new)
-                .toList();
+        var window = deviceService.getDevicesWindow(
+                brand,
+                state == null ? null : parseState(state),
+                cursor == null ? null : DeviceCursor.decode(cursor),
+                size
+        );
+
+        var nextCursor = window.nextCursor() == null ? null : window.nextCursor().encode();
+
+        recordRows("cursor", window.devices().size());
+
+        return new DeviceCursorPageResponse(window.devices(), size, nextCursor);
+    }
+
+    @Tag(name = "export", description = "Stream all devices as newline delimited JSON, also search by brand name and state")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void export(
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String state,
+            HttpServletResponse response
+    ) throws IOException {
+        log.info("Export devices request brand {} and state {}", brand, state);
+
+        var stateValue = state == null ? null : parseState(state);
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        var outputStream = response.getOutputStream();
 
-        return new PageImpl<>(devicesResponse, pageable, devices.getTotalElements());
+        deviceService.exportDevices(brand, stateValue, device -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(new DeviceResponse(device)));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        outputStream.flush();
     }
 
     @Tag(name = "upsert", description = "Update device by id and DevicePutRequest payload")
     @PutMapping("/{id}")
     public ResponseEntity<@NonNull DeviceResponse> upsert(
             @PathVariable("id") UUID id,
-            @Valid @RequestBody DevicePutRequest devicePutRequest
+            @Valid @RequestBody DevicePutRequest devicePutRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
         log.info("Upsert device id {}", id);
 
-        var upsertDevice = deviceService.upsert(id, devicePutRequest);
+        var upsertDevice = deviceService.upsert(id, devicePutRequest, parseIfMatch(ifMatch));
         var httpStatus = upsertDevice.created() ? HttpStatus.CREATED : HttpStatus.OK;
 
-        return new ResponseEntity<>(new DeviceResponse(upsertDevice.device()), httpStatus);
+        return ResponseEntity.status(httpStatus)
+                .eTag(eTag(upsertDevice.device()))
+                .body(new DeviceResponse(upsertDevice.device()));
     }
 
     @Tag(name = "update", description = "Update device by id and DeviceUpdateRequest payload")
     @PatchMapping("/{id}")
     public ResponseEntity<@NonNull DeviceResponse> update(
             @PathVariable("id") UUID id,
-            @Valid @RequestBody DevicePatchRequest devicePatchRequest
+            @Valid @RequestBody DevicePatchRequest devicePatchRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
         log.info("Update device id {}", id);
 
-        var device = deviceService.update(id, devicePatchRequest);
+        var device = deviceService.update(id, devicePatchRequest, parseIfMatch(ifMatch));
 
-        return new ResponseEntity<>(new DeviceResponse(device), HttpStatus.OK);
+        return ResponseEntity.ok()
+                .eTag(eTag(device))
+                .body(new DeviceResponse(device));
     }
 
     @Tag(name = "delete", description = "Delete device by id")
     @DeleteMapping("/{id}")
-    public ResponseEntity<@NonNull DeviceResponse> delete(@PathVariable("id") UUID id) {
+    public ResponseEntity<@NonNull DeviceResponse> delete(
+            @PathVariable("id") UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
         log.info("Delete device id {}", id);
 
-        deviceService.delete(id);
+        deviceService.delete(id, parseIfMatch(ifMatch));
 
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Rows per listed page, a slower page with the same latency per row points at the result size rather than the query.
+     */
+    private void recordRows(String query, int rows) {
+        listRows.get(query).record(rows);
+    }
+
+    private static Map<String, DistributionSummary> listRowSummaries(MeterRegistry meterRegistry) {
+        var summaries = new HashMap<String, DistributionSummary>();
+
+        for (var query : List.of("all", "brand", "state", "filter", "cursor")) {
+            summaries.put(query, DistributionSummary.builder("devices.list.rows")
+                    .description("Devices returned per list request")
+                    .tag("query", query)
+                    .register(meterRegistry));
+        }
+
+        return summaries;
+    }
+
+    private static DeviceState parseState(String state) {
+        var stateValue = DeviceState.find(state);
+
+        if (stateValue == null) {
+            throw new IllegalArgumentException("Device state value is incorrect use: " + DeviceState.getValuesDescription());
+        }
+
+        return stateValue;
+    }
+
+    private static String eTag(Device device) {
+        return "\"" + device.getVersion() + "\"";
+    }
+
+    /**
+     * @return version expected by the client or null when the header is absent or {@code *}
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.strip().equals("*")) {
+            return null;
+        }
+
+        var tag = ifMatch.strip();
+
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+
+        try {
+            if (tag.length() < 2 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+                throw new NumberFormatException();
+            }
+
+            return Long.parseLong(tag, 1, tag.length() - 1, 10);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match header should contain a single device ETag");
+        }
+    }
 }
@@ -1,12 +1,18 @@
 package de.device.demo.controllers;
 
 import de.device.demo.errors.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSourceResolvable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.FieldError;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -22,6 +28,29 @@ public class ErrorController {
 
     private static final Logger log = LoggerFactory.getLogger(ErrorController.class);
 
+    private final Counter invalidRequestCounter;
+    private final Counter notFoundCounter;
+    private final Counter inUseCounter;
+    private final Counter creationTimeCounter;
+    private final Counter versionMismatchCounter;
+    private final Counter concurrentModificationCounter;
+    private final Counter notAcceptableCounter;
+    private final Counter exportUnsupportedCounter;
+    private final Counter unexpectedCounter;
+
+    @Autowired
+    public ErrorController(MeterRegistry meterRegistry) {
+        this.invalidRequestCounter = errorCounter(meterRegistry, HttpStatus.BAD_REQUEST, "invalid_request");
+        this.notFoundCounter = errorCounter(meterRegistry, HttpStatus.NOT_FOUND, "not_found");
+        this.inUseCounter = errorCounter(meterRegistry, HttpStatus.CONFLICT, "in_use");
+        this.creationTimeCounter = errorCounter(meterRegistry, HttpStatus.CONFLICT, "creation_time_immutable");
+        this.versionMismatchCounter = errorCounter(meterRegistry, HttpStatus.PRECONDITION_FAILED, "version_mismatch");
+        this.concurrentModificationCounter = errorCounter(meterRegistry, HttpStatus.CONFLICT, "concurrent_modification");
+        this.notAcceptableCounter = errorCounter(meterRegistry, HttpStatus.NOT_ACCEPTABLE, "not_acceptable");
+        this.exportUnsupportedCounter = errorCounter(meterRegistry, HttpStatus.NOT_IMPLEMENTED, "export_unsupported");
+        this.unexpectedCounter = errorCounter(meterRegistry, HttpStatus.INTERNAL_SERVER_ERROR, "unexpected");
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public Map<String, String> handleTypeMismatch(MethodArgumentTypeMismatchException ex) {
@@ -33,7 +62,8 @@ public class ErrorController {
             errorResponse = Map.of("message", "Invalid request parameter " + ex.getParameter().getParameterName());
         }
 
-        log.error(errorResponse.toString());
+        invalidRequestCounter.increment();
+        log.warn("{}", errorResponse);
 
         return errorResponse;
     }
@@ -54,7 +84,8 @@ public class ErrorController {
                         }
                 );
 
-        log.error(errors.toString());
+        invalidRequestCounter.increment();
+        log.warn("{}", errors);
 
         return errors;
     }
@@ -62,7 +93,8 @@ public class ErrorController {
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(DeviceNotFoundException.class)
     public Map<String, String> handleDeviceNotFoundException(DeviceNotFoundException e) {
-        log.error(e.getMessage());
+        notFoundCounter.increment();
+        log.warn(e.getMessage());
 
         return Map.of("message", e.getMessage());
     }
@@ -70,21 +102,78 @@ public class ErrorController {
     @ResponseStatus(HttpStatus.CONFLICT)
     @ExceptionHandler(DeviceModificationException.class)
     public Map<String, String> handleDeviceInUseUpdateModificationException(DeviceModificationException e) {
-        log.error(e.getMessage());
+        inUseCounter.increment();
+        log.warn(e.getMessage());
+
+        return Map.of("message", e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(DeviceUpdateCreationTimeException.class)
+    public Map<String, String> handleDeviceUpdateCreationTimeException(DeviceUpdateCreationTimeException e) {
+        creationTimeCounter.increment();
+        log.warn(e.getMessage());
+
+        return Map.of("message", e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler(DeviceVersionMismatchException.class)
+    public Map<String, String> handleDeviceVersionMismatchException(DeviceVersionMismatchException e) {
+        versionMismatchCounter.increment();
+        log.warn(e.getMessage());
 
         return Map.of("message", e.getMessage());
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public Map<String, String> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException e) {
+        concurrentModificationCounter.increment();
+        log.warn(e.getMessage());
+
+        return Map.of(
+                "message",
+                "%s: device was modified concurrently, retry the request".formatted(Errors.DEVICE_CONCURRENTLY_MODIFIED.getErrorCode())
+        );
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(IllegalArgumentException.class)
     public Map<String, String> handleIllegalArgumentException(IllegalArgumentException e) {
-        log.error(e.getMessage());
+        invalidRequestCounter.increment();
+        log.warn(e.getMessage());
 
         return Map.of("message", e.getMessage());
     }
 
+    /**
+     * No body, none of the client's accepted types can be written.
+     */
+    @ExceptionHandler(HttpMediaTypeNotAcceptableException.class)
+    public ResponseEntity<Void> handleMediaTypeNotAcceptable(HttpMediaTypeNotAcceptableException e) {
+        notAcceptableCounter.increment();
+        log.warn(e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+    }
+
+    /**
+     * The export asked for newline delimited JSON, the error is plain JSON.
+     */
+    @ExceptionHandler(DeviceExportUnsupportedException.class)
+    public ResponseEntity<Map<String, String>> handleDeviceExportUnsupportedException(DeviceExportUnsupportedException e) {
+        exportUnsupportedCounter.increment();
+        log.warn(e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("message", e.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleAllOtherExceptions(Exception ex) {
+        unexpectedCounter.increment();
         log.error(ex.getMessage(), ex);
 
         return new ResponseEntity<>(
@@ -92,4 +181,12 @@ public class ErrorController {
                 HttpStatus.INTERNAL_SERVER_ERROR
         );
     }
+
+    private static Counter errorCounter(MeterRegistry meterRegistry, HttpStatus status, String reason) {
+        return Counter.builder("devices.errors")
+                .description("Requests answered with an error, by status and reason")
+                .tag("status", Integer.toString(status.value()))
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
 }
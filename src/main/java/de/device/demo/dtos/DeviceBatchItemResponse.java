@@ -0,0 +1,22 @@
+package de.device.demo.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record DeviceBatchItemResponse(
+        int index,
+        int status,
+        DeviceResponse device,
+        Map<String, String> errors
+) {
+
+    public static DeviceBatchItemResponse created(int index, DeviceResponse device) {
+        return new DeviceBatchItemResponse(index, 201, device, null);
+    }
+
+    public static DeviceBatchItemResponse rejected(int index, Map<String, String> errors) {
+        return new DeviceBatchItemResponse(index, 400, null, errors);
+    }
+}
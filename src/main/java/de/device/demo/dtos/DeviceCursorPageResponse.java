@@ -0,0 +1,15 @@
+package de.device.demo.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record DeviceCursorPageResponse(
+        List<DeviceView> content,
+
+        int size,
+
+        @JsonProperty("next_cursor")
+        String nextCursor
+) {
+}
@@ -0,0 +1,17 @@
+package de.device.demo.dtos;
+
+import de.device.demo.models.DeviceImportRejection;
+import de.device.demo.models.DeviceImportResult;
+
+import java.util.List;
+
+public record DeviceImportResponse(
+        long accepted,
+        long rejected,
+        List<DeviceImportRejection> rejections
+) {
+
+    public DeviceImportResponse(DeviceImportResult result) {
+        this(result.accepted(), result.rejected(), result.rejections());
+    }
+}
@@ -0,0 +1,31 @@
+package de.device.demo.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.device.demo.models.DeviceState;
+import de.device.demo.models.DeviceStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public record DeviceStatsResponse(
+        long total,
+
+        Map<DeviceState, Long> states,
+
+        Map<String, Map<DeviceState, Long>> brands,
+
+        @JsonProperty("creation_histogram")
+        Map<String, Map<DeviceState, Long>> creationHistogram
+) {
+
+    public DeviceStatsResponse(DeviceStats stats) {
+        this(stats.total(), stats.states(), stats.brands(), monthKeys(stats));
+    }
+
+    private static Map<String, Map<DeviceState, Long>> monthKeys(DeviceStats stats) {
+        var histogram = new LinkedHashMap<String, Map<DeviceState, Long>>();
+        stats.creationHistogram().forEach((month, states) -> histogram.put(month.toString(), states));
+
+        return histogram;
+    }
+}
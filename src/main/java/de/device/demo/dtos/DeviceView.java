@@ -0,0 +1,32 @@
+package de.device.demo.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.device.demo.entities.Device;
+import de.device.demo.models.DeviceState;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Immutable read-only device row, list queries select it with a constructor expression so no entities are
+ * managed. Serializes to the same JSON as {@link DeviceResponse}.
+ */
+public record DeviceView(
+        UUID id,
+
+        String name,
+
+        String brand,
+
+        DeviceState state,
+
+        @JsonProperty("creation_time")
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+        LocalDateTime creationTime
+) {
+
+    public static DeviceView of(Device device) {
+        return new DeviceView(device.getId(), device.getName(), device.getBrand(), device.getState(), device.getCreationTime());
+    }
+}
@@ -2,13 +2,18 @@ package de.device.demo.entities;
 
 import de.device.demo.models.DeviceState;
 import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+/**
+ * Ids are assigned before save, so newness is tracked explicitly, otherwise Spring Data would
+ * merge every new device and issue a SELECT before the INSERT.
+ */
 @Entity
 @Table(name = "devices")
-public class Device {
+public class Device implements Persistable<UUID> {
 
     @Id
     @Column(columnDefinition = "uuid", updatable = false, nullable = false)
@@ -27,6 +32,13 @@ public class Device {
     @Column(name = "creation_time", nullable = false)
     private LocalDateTime creationTime;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    @Transient
+    private boolean isNew = true;
+
     public Device() {
     }
 
@@ -45,6 +57,13 @@ public class Device {
         this.creationTime = creationTime;
     }
 
+    public Device(UUID id, String name, String brand, DeviceState state, LocalDateTime creationTime, long version) {
+        this(id, name, brand, state, creationTime);
+        this.version = version;
+        this.isNew = false;
+    }
+
+    @Override
     public UUID getId() {
         return id;
     }
@@ -84,4 +103,19 @@ public class Device {
     public void setCreationTime(LocalDateTime creationTime) {
         this.creationTime = creationTime;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
 }
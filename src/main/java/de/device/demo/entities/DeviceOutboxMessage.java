@@ -0,0 +1,61 @@
+package de.device.demo.entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Device change waiting to be relayed downstream, written in the same transaction as the change itself.
+ * Ids increase in commit order per writer and give the relay its order.
+ */
+@Entity
+@Table(name = "device_outbox")
+public class DeviceOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", columnDefinition = "uuid", nullable = false)
+    private UUID deviceId;
+
+    @Column(nullable = false, length = 16)
+    private String type;
+
+    @Column(nullable = false, length = 4096)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public DeviceOutboxMessage() {
+    }
+
+    public DeviceOutboxMessage(UUID deviceId, String type, String payload, LocalDateTime createdAt) {
+        this.deviceId = deviceId;
+        this.type = type;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public UUID getDeviceId() {
+        return deviceId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
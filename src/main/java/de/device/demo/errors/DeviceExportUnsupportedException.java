@@ -0,0 +1,13 @@
+package de.device.demo.errors;
+
+public class DeviceExportUnsupportedException extends RuntimeException {
+    public DeviceExportUnsupportedException(String reason) {
+        super(
+                String.format(
+                        "%s: device export is not supported, %s",
+                        Errors.DEVICE_EXPORT_UNSUPPORTED.getErrorCode(),
+                        reason
+                )
+        );
+    }
+}
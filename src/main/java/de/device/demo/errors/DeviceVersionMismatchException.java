@@ -0,0 +1,17 @@
+package de.device.demo.errors;
+
+import java.util.UUID;
+
+public class DeviceVersionMismatchException extends RuntimeException {
+    public DeviceVersionMismatchException(UUID id, long expectedVersion, long currentVersion) {
+        super(
+                String.format(
+                        "%s: device with id %s has version %d but %d was expected",
+                        Errors.DEVICE_VERSION_MISMATCH.getErrorCode(),
+                        id,
+                        currentVersion,
+                        expectedVersion
+                )
+        );
+    }
+}
@@ -2,7 +2,10 @@ package de.device.demo.errors;
 
 public enum Errors {
     DEVICE_ID_NOT_FOUND("E00001"),
-    DEVICE_NOT_MODIFIABLE("E00101");
+    DEVICE_NOT_MODIFIABLE("E00101"),
+    DEVICE_VERSION_MISMATCH("E00102"),
+    DEVICE_CONCURRENTLY_MODIFIED("E00103"),
+    DEVICE_EXPORT_UNSUPPORTED("E00201");
 
     private final String code;
 
@@ -0,0 +1,7 @@
+package de.device.demo.events;
+
+public enum DeviceChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+}
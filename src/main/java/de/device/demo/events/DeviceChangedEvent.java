@@ -0,0 +1,30 @@
+package de.device.demo.events;
+
+import de.device.demo.dtos.DeviceView;
+import de.device.demo.entities.Device;
+
+import java.util.UUID;
+
+/**
+ * Published by the service write paths, listeners observe it once the transaction has committed.
+ * {@code previous} is null for created devices and {@code current} is null for deleted ones.
+ */
+public record DeviceChangedEvent(
+        DeviceChangeType type,
+        UUID id,
+        DeviceView previous,
+        DeviceView current
+) {
+
+    public static DeviceChangedEvent created(Device device) {
+        return new DeviceChangedEvent(DeviceChangeType.CREATED, device.getId(), null, DeviceView.of(device));
+    }
+
+    public static DeviceChangedEvent updated(Device previous, Device current) {
+        return new DeviceChangedEvent(DeviceChangeType.UPDATED, current.getId(), DeviceView.of(previous), DeviceView.of(current));
+    }
+
+    public static DeviceChangedEvent deleted(Device previous) {
+        return new DeviceChangedEvent(DeviceChangeType.DELETED, previous.getId(), DeviceView.of(previous), null);
+    }
+}
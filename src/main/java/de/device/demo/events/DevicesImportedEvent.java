@@ -0,0 +1,13 @@
+package de.device.demo.events;
+
+import de.device.demo.models.DeviceStatsChanges;
+
+/**
+ * Published once per bulk import instead of a change event per device.
+ * Carries the imported totals per stats bucket, so listeners don't have to recount the devices.
+ */
+public record DevicesImportedEvent(
+        long accepted,
+        DeviceStatsChanges statsChanges
+) {
+}
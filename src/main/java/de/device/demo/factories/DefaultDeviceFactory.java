@@ -13,15 +13,17 @@ import java.util.UUID;
 public class DefaultDeviceFactory implements DeviceFactory {
 
     private final DateTimeInterface dateTimeInterface;
+    private final DeviceIdGenerator deviceIdGenerator;
 
     @Autowired
-    public DefaultDeviceFactory(DateTimeInterface dateTimeInterface) {
+    public DefaultDeviceFactory(DateTimeInterface dateTimeInterface, DeviceIdGenerator deviceIdGenerator) {
         this.dateTimeInterface = dateTimeInterface;
+        this.deviceIdGenerator = deviceIdGenerator;
     }
 
     @Override
     public Device createDevice(String name, String brand) {
-        return createDevice(UUID.randomUUID(), name, brand, DeviceState.AVAILABLE, dateTimeInterface.now());
+        return createDevice(deviceIdGenerator.nextId(), name, brand, DeviceState.AVAILABLE, dateTimeInterface.now());
     }
 
     @Override
@@ -0,0 +1,10 @@
+package de.device.demo.factories;
+
+import java.util.UUID;
+
+/**
+ * Source of ids for devices created by the service, client supplied ids on PUT are kept as they are.
+ */
+public interface DeviceIdGenerator {
+    UUID nextId();
+}
@@ -0,0 +1,19 @@
+package de.device.demo.factories;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Random version 4 UUIDs, the ids devices had before they became time ordered.
+ */
+@Component
+@ConditionalOnProperty(name = "devices.id-generator", havingValue = "random")
+public class RandomDeviceIdGenerator implements DeviceIdGenerator {
+
+    @Override
+    public UUID nextId() {
+        return UUID.randomUUID();
+    }
+}
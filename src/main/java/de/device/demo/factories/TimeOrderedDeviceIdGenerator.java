@@ -0,0 +1,32 @@
+package de.device.demo.factories;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Version 7 UUIDs, a 48 bit Unix millisecond timestamp followed by 74 random bits. New ids land at the right
+ * edge of the primary key index instead of anywhere in it, and the random bits come from the thread's own
+ * generator instead of the shared {@link java.security.SecureRandom} behind {@link UUID#randomUUID()}.
+ * <p>
+ * Ids are ordered to the millisecond, within a millisecond the order is random. The creation time can be read
+ * from the id, which is no secret here as it is part of every response anyway.
+ */
+@Component
+@ConditionalOnProperty(name = "devices.id-generator", havingValue = "time-ordered", matchIfMissing = true)
+public class TimeOrderedDeviceIdGenerator implements DeviceIdGenerator {
+
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+
+    @Override
+    public UUID nextId() {
+        var random = ThreadLocalRandom.current();
+        var mostSignificantBits = System.currentTimeMillis() << 16 | VERSION | random.nextInt(1 << 12);
+        var leastSignificantBits = random.nextLong() >>> 2 | VARIANT;
+
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
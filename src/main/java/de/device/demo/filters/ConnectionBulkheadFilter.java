@@ -0,0 +1,98 @@
+package de.device.demo.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits API requests in flight to the size of the connection pool. With virtual threads the servlet container
+ * no longer caps concurrency, so without it every parked request would wait on Hikari and time out together.
+ * Requests queue here in arrival order instead and get 503 once the wait exceeds the configured timeout.
+ */
+@Component
+@ConditionalOnProperty(name = "devices.bulkhead.enabled", havingValue = "true")
+public class ConnectionBulkheadFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long waitTimeoutNanos;
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public ConnectionBulkheadFilter(
+            MeterRegistry meterRegistry,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxConcurrentRequests,
+            @Value("${devices.bulkhead.wait-timeout}") Duration waitTimeout
+    ) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+        this.waitTimer = Timer.builder("devices.bulkhead.wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("devices.bulkhead.rejected")
+                .register(meterRegistry);
+
+        Gauge.builder("devices.bulkhead.available", permits, Semaphore::availablePermits)
+                .register(meterRegistry);
+        Gauge.builder("devices.bulkhead.queued", permits, Semaphore::getQueueLength)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        var waitStart = System.nanoTime();
+        boolean acquired;
+
+        try {
+            acquired = permits.tryAcquire(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        waitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+
+        if (!acquired) {
+            rejectedCounter.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"Service is busy, retry later\"}");
+
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.device.demo.filters;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limits the configured high-volume loggers, configured in logback-spring.xml. Each logger passes up to
+ * {@code maxPerSecond} events per second, beyond that only every {@code sampleRate}-th event passes,
+ * or none with a rate of 0. Events carrying an exception always pass.
+ * <p>
+ * Runs as a turbo filter, so denied events are never created, formatted or queued.
+ */
+public class LogSamplingFilter extends TurboFilter {
+
+    private final Set<String> loggerNames = new HashSet<>();
+    private Map<String, Window> windows = Map.of();
+    private long maxPerSecond = 100;
+    private long sampleRate = 100;
+
+    public void addLoggerName(String loggerName) {
+        loggerNames.add(loggerName.strip());
+    }
+
+    public void setMaxPerSecond(long maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public void setSampleRate(long sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void start() {
+        var configured = new HashMap<String, Window>();
+
+        for (var loggerName : loggerNames) {
+            configured.put(loggerName, new Window());
+        }
+
+        windows = Map.copyOf(configured);
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // Level checks like isInfoEnabled() come without a format and must not use up the budget
+        if (format == null || t != null || !isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        var window = windows.get(logger.getName());
+
+        if (window == null || window.admit(System.currentTimeMillis() / 1000)) {
+            return FilterReply.NEUTRAL;
+        }
+
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Resetting the window races with concurrent increments, so a second may let a few events more or less pass.
+     */
+    private class Window {
+
+        private final AtomicLong second = new AtomicLong();
+        private final AtomicLong count = new AtomicLong();
+
+        boolean admit(long now) {
+            var current = second.get();
+
+            if (now != current && second.compareAndSet(current, now)) {
+                count.set(0);
+            }
+
+            var n = count.incrementAndGet();
+
+            return n <= maxPerSecond || (sampleRate > 0 && (n - maxPerSecond) % sampleRate == 0);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.device.demo.filters;
+
+import de.device.demo.configs.ReplicaRoutingDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Guards clients against replication lag on their own writes. A write answers with a cookie holding the end of
+ * the pin window, requests carrying an unexpired cookie read from the primary, so a client reads what it wrote.
+ */
+@Component
+@ConditionalOnProperty(name = "devices.datasource.replica.url")
+public class PrimaryPinFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "devices-primary-until";
+
+    private final Duration pinWindow;
+
+    @Autowired
+    public PrimaryPinFilter(@Value("${devices.datasource.replica.pin-window}") Duration pinWindow) {
+        this.pinWindow = pinWindow;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        var now = System.currentTimeMillis();
+        var write = isWrite(request);
+
+        if (write) {
+            var cookie = ResponseCookie.from(COOKIE_NAME, Long.toString(now + pinWindow.toMillis()))
+                    .path("/api/")
+                    .maxAge(pinWindow)
+                    .httpOnly(true)
+                    .build();
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+
+        if (!write && !isPinned(request, now)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ReplicaRoutingDataSource.pinToPrimary();
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.unpin();
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        var method = HttpMethod.valueOf(request.getMethod());
+
+        return method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS;
+    }
+
+    private static boolean isPinned(HttpServletRequest request, long now) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > now;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+
+        return false;
+    }
+}
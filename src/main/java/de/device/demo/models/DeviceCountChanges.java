@@ -0,0 +1,50 @@
+package de.device.demo.models;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Net changes of per-state and per-brand device totals within one write.
+ * Keys are sorted, so concurrent writers update count rows in the same order.
+ */
+public class DeviceCountChanges {
+
+    private final Map<String, Long> states = new TreeMap<>();
+    private final Map<String, Long> brands = new TreeMap<>();
+
+    public DeviceCountChanges added(String brand, DeviceState state) {
+        return change(brand, state, 1);
+    }
+
+    public DeviceCountChanges removed(String brand, DeviceState state) {
+        return change(brand, state, -1);
+    }
+
+    public DeviceCountChanges moved(String oldBrand, DeviceState oldState, String newBrand, DeviceState newState) {
+        return removed(oldBrand, oldState).added(newBrand, newState);
+    }
+
+    public Map<String, Long> states() {
+        return states;
+    }
+
+    public Map<String, Long> brands() {
+        return brands;
+    }
+
+    public boolean isEmpty() {
+        return states.isEmpty() && brands.isEmpty();
+    }
+
+    private DeviceCountChanges change(String brand, DeviceState state, long delta) {
+        merge(states, state.name(), delta);
+        merge(brands, brand, delta);
+
+        return this;
+    }
+
+    private static void merge(Map<String, Long> totals, String key, long delta) {
+        // Zero entries are dropped, so a move that keeps brand or state writes nothing for it
+        totals.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+}
@@ -0,0 +1,51 @@
+package de.device.demo.models;
+
+import de.device.demo.dtos.DeviceView;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position of the last device returned to the client, ordered by creation time and id.
+ * Travels to the client as an opaque url-safe token.
+ */
+public record DeviceCursor(
+        LocalDateTime creationTime,
+        UUID id
+) {
+
+    private static final char SEPARATOR = '|';
+
+    public static DeviceCursor of(DeviceView device) {
+        return new DeviceCursor(device.creationTime(), device.id());
+    }
+
+    public static DeviceCursor decode(String token) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var separatorIndex = raw.indexOf(SEPARATOR);
+
+            if (separatorIndex < 0) {
+                throw new IllegalArgumentException();
+            }
+
+            return new DeviceCursor(
+                    LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                    UUID.fromString(raw.substring(separatorIndex + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Device cursor value is incorrect");
+        }
+    }
+
+    public String encode() {
+        var raw = creationTime.toString() + SEPARATOR + id;
+
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
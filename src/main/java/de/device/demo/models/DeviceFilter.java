@@ -0,0 +1,24 @@
+package de.device.demo.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional list filters, null fields are not applied. Creation time range is {@code [createdFrom, createdTo)}.
+ */
+public record DeviceFilter(
+        String brand,
+        DeviceState state,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo
+) {
+
+    public DeviceFilter {
+        if (createdFrom != null && createdTo != null && !createdFrom.isBefore(createdTo)) {
+            throw new IllegalArgumentException("Creation time range start should be before its end");
+        }
+    }
+
+    public boolean hasCreationTimeRange() {
+        return createdFrom != null || createdTo != null;
+    }
+}
@@ -0,0 +1,6 @@
+package de.device.demo.models;
+
+public enum DeviceImportFormat {
+    CSV,
+    NDJSON,
+}
@@ -0,0 +1,9 @@
+package de.device.demo.models;
+
+import java.util.Map;
+
+public record DeviceImportRejection(
+        long line,
+        Map<String, String> errors
+) {
+}
@@ -0,0 +1,13 @@
+package de.device.demo.models;
+
+import java.util.List;
+
+/**
+ * Import totals, {@code rejections} holds only the first rejected rows.
+ */
+public record DeviceImportResult(
+        long accepted,
+        long rejected,
+        List<DeviceImportRejection> rejections
+) {
+}
@@ -1,5 +1,8 @@
 package de.device.demo.models;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum DeviceState {
     AVAILABLE,
     IN_USE,
@@ -7,8 +10,13 @@ public enum DeviceState {
     ;
 
     private static final String valuesDescription;
+    private static final Map<String, DeviceState> byName = new HashMap<>();
 
     static {
+        for (DeviceState val : values()) {
+            byName.put(val.name(), val);
+        }
+
         var builder = new StringBuilder();
         builder.append("[ ");
 
@@ -24,4 +32,13 @@ public enum DeviceState {
     public static String getValuesDescription() {
         return valuesDescription;
     }
+
+    /**
+     * Lookup without exception cost for unknown input.
+     *
+     * @return state with the given name or null
+     */
+    public static DeviceState find(String name) {
+        return byName.get(name);
+    }
 }
@@ -0,0 +1,15 @@
+package de.device.demo.models;
+
+import java.time.YearMonth;
+import java.util.Map;
+
+/**
+ * Inventory totals, brand by state matrix and per-month creation histogram split by state.
+ */
+public record DeviceStats(
+        long total,
+        Map<DeviceState, Long> states,
+        Map<String, Map<DeviceState, Long>> brands,
+        Map<YearMonth, Map<DeviceState, Long>> creationHistogram
+) {
+}
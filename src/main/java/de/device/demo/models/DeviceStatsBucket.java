@@ -0,0 +1,13 @@
+package de.device.demo.models;
+
+/**
+ * Number of devices of one brand and state created in one calendar month.
+ */
+public record DeviceStatsBucket(
+        String brand,
+        DeviceState state,
+        int year,
+        int month,
+        long total
+) {
+}
@@ -0,0 +1,40 @@
+package de.device.demo.models;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Net changes of per brand, state and creation month device totals within one bulk write.
+ * Grows with brands and months but not with devices.
+ */
+public class DeviceStatsChanges {
+
+    private final Map<Key, Long> totals = new HashMap<>();
+
+    public DeviceStatsChanges added(String brand, DeviceState state, LocalDateTime creationTime) {
+        totals.merge(new Key(brand, state, YearMonth.from(creationTime)), 1L, Long::sum);
+
+        return this;
+    }
+
+    public List<DeviceStatsBucket> buckets() {
+        var buckets = new ArrayList<DeviceStatsBucket>(totals.size());
+
+        totals.forEach((key, total) -> buckets.add(new DeviceStatsBucket(
+                key.brand(),
+                key.state(),
+                key.month().getYear(),
+                key.month().getMonthValue(),
+                total
+        )));
+
+        return buckets;
+    }
+
+    private record Key(String brand, DeviceState state, YearMonth month) {
+    }
+}
@@ -0,0 +1,14 @@
+package de.device.demo.models;
+
+import de.device.demo.dtos.DeviceView;
+
+import java.util.List;
+
+/**
+ * Single keyset page of devices, {@code nextCursor} is null when there are no more devices to read.
+ */
+public record DeviceWindow(
+        List<DeviceView> devices,
+        DeviceCursor nextCursor
+) {
+}
@@ -0,0 +1,49 @@
+package de.device.demo.repositories;
+
+import de.device.demo.entities.Device;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@Timed(value = "devices.repository", description = "Device statements outside Spring Data repositories")
+public class DeviceBatchRepository {
+
+    private final EntityManager entityManager;
+    private final int batchSize;
+
+    @Autowired
+    public DeviceBatchRepository(
+            EntityManager entityManager,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}") int batchSize
+    ) {
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Persists new devices skipping merge, flushing and clearing the persistence context every JDBC batch,
+     * so inserts go out as batched statements and the context doesn't grow with the input.
+     * Must run inside a transaction.
+     */
+    public void persistAll(List<Device> devices) {
+        int pending = 0;
+
+        for (var device : devices) {
+            entityManager.persist(device);
+
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,172 @@
+package de.device.demo.repositories;
+
+import de.device.demo.models.DeviceCountChanges;
+import de.device.demo.models.DeviceState;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-state and per-brand device totals, changed in the same transaction as the devices they count.
+ * Each total is spread over {@value #SLOTS} slot rows and a write only touches one random slot,
+ * so creates of the same state don't queue on a single row lock. Must run inside a transaction.
+ */
+@Repository
+@Timed(value = "devices.repository", description = "Device statements outside Spring Data repositories")
+public class DeviceCountRepository {
+
+    private static final int SLOTS = 16;
+    // Four bind parameters per row, the shared slot is expanded into every row, well below the driver's limit
+    private static final int ROWS_PER_STATEMENT = 1000;
+    private static final String STATE = "state";
+    private static final String BRAND = "brand";
+
+    private final EntityManager entityManager;
+    private final boolean postgres;
+
+    @Autowired
+    public DeviceCountRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.postgres = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect() instanceof PostgreSQLDialect;
+    }
+
+    /**
+     * Applies all changes in as few statements as the bind parameter limit allows, one for a single device write.
+     */
+    public void apply(DeviceCountChanges changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        var rows = new ArrayList<CountRow>();
+        changes.states().forEach((state, total) -> rows.add(new CountRow(STATE, state, total)));
+        changes.brands().forEach((brand, total) -> rows.add(new CountRow(BRAND, brand, total)));
+
+        var slot = (short) ThreadLocalRandom.current().nextInt(SLOTS);
+
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            upsert(rows.subList(from, Math.min(from + ROWS_PER_STATEMENT, rows.size())), slot);
+        }
+    }
+
+    public long countAll() {
+        var total = entityManager.createNativeQuery("SELECT COALESCE(SUM(total), 0) FROM device_counts WHERE kind = :kind")
+                .setParameter("kind", STATE)
+                .getSingleResult();
+
+        return ((Number) total).longValue();
+    }
+
+    public long countByState(DeviceState state) {
+        return count(STATE, state.name());
+    }
+
+    public long countByBrand(String brand) {
+        return count(BRAND, brand);
+    }
+
+    /**
+     * Corrects all totals to a fresh grouped count of the devices table. Each kind's drift is computed in one
+     * statement, so the device count and the counted totals come from the same snapshot and no lock is taken by
+     * the scans. Only totals that drifted get a delta in one slot, writes committed after the snapshot add their
+     * own deltas on top, so the result stays exact. Slot rows left at zero are removed, they don't contribute to
+     * any total.
+     */
+    public void rebuild() {
+        var corrections = new ArrayList<CountRow>();
+
+        correct(corrections, STATE, "CAST(state AS VARCHAR(255))");
+        correct(corrections, BRAND, "brand");
+
+        var slot = (short) ThreadLocalRandom.current().nextInt(SLOTS);
+
+        for (int from = 0; from < corrections.size(); from += ROWS_PER_STATEMENT) {
+            upsert(corrections.subList(from, Math.min(from + ROWS_PER_STATEMENT, corrections.size())), slot);
+        }
+
+        entityManager.createNativeQuery("DELETE FROM device_counts WHERE total = 0").executeUpdate();
+    }
+
+    private void correct(List<CountRow> corrections, String kind, String column) {
+        // Counted totals are subtracted from the actual ones, what is left over is the drift
+        var drift = totals(entityManager.createNativeQuery((
+                        "SELECT name, SUM(total) FROM ("
+                                + "SELECT %1$s AS name, COUNT(*) AS total FROM devices GROUP BY %1$s"
+                                + " UNION ALL SELECT name, -total FROM device_counts WHERE kind = :kind"
+                                + ") d GROUP BY name HAVING SUM(total) <> 0"
+                ).formatted(column))
+                .setParameter("kind", kind)
+                .getResultList());
+
+        drift.forEach((name, delta) -> corrections.add(new CountRow(kind, name, delta)));
+    }
+
+    /**
+     * Keys are sorted, so concurrent writers and the rebuild lock count rows in the same order.
+     */
+    private static Map<String, Long> totals(List<?> rows) {
+        var totals = new TreeMap<String, Long>();
+
+        for (var row : rows) {
+            var columns = (Object[]) row;
+            totals.put((String) columns[0], ((Number) columns[1]).longValue());
+        }
+
+        return totals;
+    }
+
+    private void upsert(List<CountRow> rows, short slot) {
+        var values = new StringJoiner(", ");
+
+        for (int i = 0; i < rows.size(); i++) {
+            values.add("(CAST(:kind%1$d AS VARCHAR(16)), CAST(:name%1$d AS VARCHAR(255)), :slot, CAST(:total%1$d AS BIGINT))".formatted(i));
+        }
+
+        var sql = postgres
+                ? "INSERT INTO device_counts (kind, name, slot, total) VALUES " + values
+                        + " ON CONFLICT (kind, name, slot) DO UPDATE SET total = device_counts.total + EXCLUDED.total"
+                : "MERGE INTO device_counts c USING (VALUES " + values + ") s (kind, name, slot, total)"
+                        + " ON c.kind = s.kind AND c.name = s.name AND c.slot = s.slot"
+                        + " WHEN MATCHED THEN UPDATE SET total = c.total + s.total"
+                        + " WHEN NOT MATCHED THEN INSERT (kind, name, slot, total) VALUES (s.kind, s.name, s.slot, s.total)";
+
+        var query = entityManager.createNativeQuery(sql).setParameter("slot", slot);
+
+        for (int i = 0; i < rows.size(); i++) {
+            var row = rows.get(i);
+
+            query.setParameter("kind" + i, row.kind())
+                    .setParameter("name" + i, row.name())
+                    .setParameter("total" + i, row.total());
+        }
+
+        query.executeUpdate();
+    }
+
+    private long count(String kind, String name) {
+        var total = entityManager.createNativeQuery(
+                        "SELECT COALESCE(SUM(total), 0) FROM device_counts WHERE kind = :kind AND name = :name"
+                )
+                .setParameter("kind", kind)
+                .setParameter("name", name)
+                .getSingleResult();
+
+        return ((Number) total).longValue();
+    }
+
+    private record CountRow(String kind, String name, long total) {
+    }
+}
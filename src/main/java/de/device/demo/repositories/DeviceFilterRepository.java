@@ -0,0 +1,10 @@
+package de.device.demo.repositories;
+
+import de.device.demo.dtos.DeviceView;
+import de.device.demo.models.DeviceFilter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface DeviceFilterRepository {
+    Page<DeviceView> findViews(DeviceFilter filter, Pageable pageable);
+}
@@ -0,0 +1,92 @@
+package de.device.demo.repositories;
+
+import de.device.demo.dtos.DeviceView;
+import de.device.demo.entities.Device;
+import de.device.demo.models.DeviceFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+class DeviceFilterRepositoryImpl implements DeviceFilterRepository {
+
+    private final EntityManager entityManager;
+
+    DeviceFilterRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<DeviceView> findViews(DeviceFilter filter, Pageable pageable) {
+        var builder = entityManager.getCriteriaBuilder();
+
+        var query = builder.createQuery(DeviceView.class);
+        var root = query.from(Device.class);
+        query.select(builder.construct(
+                        DeviceView.class,
+                        root.get("id"),
+                        root.get("name"),
+                        root.get("brand"),
+                        root.get("state"),
+                        root.get("creationTime")
+                ))
+                .where(predicates(filter, root, builder))
+                .orderBy(orders(pageable, root, builder));
+
+        var typedQuery = entityManager.createQuery(query);
+
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        var countQuery = builder.createQuery(Long.class);
+        var countRoot = countQuery.from(Device.class);
+        countQuery.select(builder.count(countRoot))
+                .where(predicates(filter, countRoot, builder));
+
+        return PageableExecutionUtils.getPage(
+                typedQuery.getResultList(),
+                pageable,
+                () -> entityManager.createQuery(countQuery).getSingleResult()
+        );
+    }
+
+    /**
+     * Only the provided filters become predicates, so every combination stays a plain
+     * equality/range prefix of the {@code (brand, state, creation_time, id)} index.
+     */
+    private static Predicate[] predicates(DeviceFilter filter, Root<Device> root, CriteriaBuilder builder) {
+        var predicates = new ArrayList<Predicate>(4);
+
+        if (filter.brand() != null) {
+            predicates.add(builder.equal(root.get("brand"), filter.brand()));
+        }
+        if (filter.state() != null) {
+            predicates.add(builder.equal(root.get("state"), filter.state()));
+        }
+        if (filter.createdFrom() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(root.<LocalDateTime>get("creationTime"), filter.createdFrom()));
+        }
+        if (filter.createdTo() != null) {
+            predicates.add(builder.lessThan(root.<LocalDateTime>get("creationTime"), filter.createdTo()));
+        }
+
+        return predicates.toArray(Predicate[]::new);
+    }
+
+    private static Order[] orders(Pageable pageable, Root<Device> root, CriteriaBuilder builder) {
+        return pageable.getSort().stream()
+                .map(order -> order.isAscending()
+                        ? builder.asc(root.get(order.getProperty()))
+                        : builder.desc(root.get(order.getProperty())))
+                .toArray(Order[]::new);
+    }
+}
@@ -0,0 +1,188 @@
+package de.device.demo.repositories;
+
+import de.device.demo.entities.Device;
+import io.micrometer.core.annotation.Timed;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Bulk writes for imports, PostgreSQL COPY when the connection supports it, batched inserts otherwise.
+ * Must run inside a transaction, devices are consumed lazily and never held all at once.
+ * With sharding the router splits the devices per shard before any connection is taken here.
+ * Every written chunk is handed to a callback in the same transaction, so follow-up writes like outbox messages
+ * land on the same shard and commit together with the devices.
+ */
+@Repository
+@Timed(value = "devices.repository", description = "Device statements outside Spring Data repositories")
+public class DeviceImportRepository {
+
+    private static final String COPY_SQL = "COPY devices (id, name, brand, state, creation_time) FROM STDIN WITH (FORMAT csv)";
+    private static final int COPY_CHUNK_SIZE = 64 * 1024;
+    private static final int ROWS_PER_COPY = 10_000;
+
+    private final DataSource dataSource;
+    private final DeviceBatchRepository deviceBatchRepository;
+    private final int batchSize;
+
+    @Autowired
+    public DeviceImportRepository(
+            DataSource dataSource,
+            DeviceBatchRepository deviceBatchRepository,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}") int batchSize
+    ) {
+        this.dataSource = dataSource;
+        this.deviceBatchRepository = deviceBatchRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param written called with each chunk of devices once it is written, the list is reused afterwards
+     * @return number of written devices
+     */
+    public long writeAll(Iterator<Device> devices, Consumer<List<Device>> written) {
+        var connection = DataSourceUtils.getConnection(dataSource);
+
+        try {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                return copy(connection.unwrap(PGConnection.class), devices, written);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Device import COPY failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        return insertBatches(devices, written);
+    }
+
+    private long copy(PGConnection connection, Iterator<Device> devices, Consumer<List<Device>> written) throws SQLException {
+        long copied = 0;
+        var rows = new ArrayList<Device>(ROWS_PER_COPY);
+
+        while (devices.hasNext()) {
+            rows.add(devices.next());
+
+            if (rows.size() == ROWS_PER_COPY) {
+                copied += copyRows(connection, rows, written);
+            }
+        }
+
+        return copied + copyRows(connection, rows, written);
+    }
+
+    /**
+     * The connection can't run other statements while a COPY is open, so rows are copied in chunks
+     * and handed on in between.
+     */
+    private long copyRows(PGConnection connection, List<Device> rows, Consumer<List<Device>> written) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        CopyIn copyIn = connection.getCopyAPI().copyIn(COPY_SQL);
+        long copied;
+
+        try {
+            var chunk = new StringBuilder(COPY_CHUNK_SIZE + 1024);
+
+            for (var device : rows) {
+                appendCsvRow(chunk, device);
+
+                if (chunk.length() >= COPY_CHUNK_SIZE) {
+                    writeChunk(copyIn, chunk);
+                }
+            }
+
+            writeChunk(copyIn, chunk);
+            copied = copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+
+        written.accept(rows);
+        rows.clear();
+
+        return copied;
+    }
+
+    private long insertBatches(Iterator<Device> devices, Consumer<List<Device>> written) {
+        long count = 0;
+        var batch = new ArrayList<Device>(batchSize);
+
+        while (devices.hasNext()) {
+            batch.add(devices.next());
+
+            if (batch.size() == batchSize) {
+                count += insertBatch(batch, written);
+            }
+        }
+
+        return count + insertBatch(batch, written);
+    }
+
+    private long insertBatch(List<Device> batch, Consumer<List<Device>> written) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        deviceBatchRepository.persistAll(batch);
+        written.accept(batch);
+
+        var count = batch.size();
+        batch.clear();
+
+        return count;
+    }
+
+    private static void writeChunk(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        var bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+
+    private static void appendCsvRow(StringBuilder row, Device device) {
+        row.append(device.getId()).append(',');
+        appendQuoted(row, device.getName());
+        row.append(',');
+        appendQuoted(row, device.getBrand());
+        row.append(',')
+                .append(device.getState().name())
+                .append(',')
+                .append(device.getCreationTime())
+                .append('\n');
+    }
+
+    private static void appendQuoted(StringBuilder row, String value) {
+        row.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+
+        row.append('"');
+    }
+}
@@ -0,0 +1,9 @@
+package de.device.demo.repositories;
+
+import de.device.demo.entities.DeviceOutboxMessage;
+
+import java.util.List;
+
+public interface DeviceOutboxInsertRepository {
+    void insertAll(List<DeviceOutboxMessage> messages);
+}
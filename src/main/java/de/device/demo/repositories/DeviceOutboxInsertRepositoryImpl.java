@@ -0,0 +1,52 @@
+package de.device.demo.repositories;
+
+import de.device.demo.entities.DeviceOutboxMessage;
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Identity ids rule out JDBC batching through persist, so messages go out as multi-row INSERTs,
+ * chunked to stay well below the bind parameter limit of the driver.
+ */
+class DeviceOutboxInsertRepositoryImpl implements DeviceOutboxInsertRepository {
+
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    private final EntityManager entityManager;
+
+    DeviceOutboxInsertRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void insertAll(List<DeviceOutboxMessage> messages) {
+        for (int from = 0; from < messages.size(); from += ROWS_PER_STATEMENT) {
+            insertChunk(messages.subList(from, Math.min(from + ROWS_PER_STATEMENT, messages.size())));
+        }
+    }
+
+    private void insertChunk(List<DeviceOutboxMessage> messages) {
+        var rows = new StringJoiner(", ");
+
+        for (int i = 0; i < messages.size(); i++) {
+            rows.add("(:deviceId%1$d, :type%1$d, :payload%1$d, :createdAt%1$d)".formatted(i));
+        }
+
+        var query = entityManager.createNativeQuery(
+                "INSERT INTO device_outbox (device_id, type, payload, created_at) VALUES " + rows
+        );
+
+        for (int i = 0; i < messages.size(); i++) {
+            var message = messages.get(i);
+
+            query.setParameter("deviceId" + i, message.getDeviceId())
+                    .setParameter("type" + i, message.getType())
+                    .setParameter("payload" + i, message.getPayload())
+                    .setParameter("createdAt" + i, message.getCreatedAt());
+        }
+
+        query.executeUpdate();
+    }
+}
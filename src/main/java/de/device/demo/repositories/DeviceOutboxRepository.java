@@ -0,0 +1,30 @@
+package de.device.demo.repositories;
+
+import de.device.demo.entities.DeviceOutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.jspecify.annotations.NonNull;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DeviceOutboxRepository
+        extends JpaRepository<@NonNull DeviceOutboxMessage, @NonNull Long>, DeviceOutboxInsertRepository {
+
+    /**
+     * Locks the oldest messages, skipping rows another relay has already claimed, lock timeout -2 is SKIP LOCKED.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select o from DeviceOutboxMessage o order by o.id")
+    List<DeviceOutboxMessage> claimBatch(Pageable pageable);
+
+    boolean existsByDeviceId(UUID deviceId);
+}
@@ -1,28 +1,180 @@
 package de.device.demo.repositories;
 
+import de.device.demo.dtos.DeviceView;
 import de.device.demo.entities.Device;
 import de.device.demo.models.DeviceState;
+import de.device.demo.models.DeviceStatsBucket;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.jspecify.annotations.NonNull;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
-
-import static jakarta.persistence.LockModeType.PESSIMISTIC_READ;
+import java.util.stream.Stream;
 
 @Repository
-public interface DeviceRepository extends JpaRepository<@NonNull Device, @NonNull UUID> {
+public interface DeviceRepository extends JpaRepository<@NonNull Device, @NonNull UUID>, DeviceFilterRepository {
+
+    // List queries project straight into DeviceView, nothing enters the persistence context
+
+    @Query(
+            value = "select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime) from Device o",
+            countQuery = "select count(o) from Device o"
+    )
+    Page<DeviceView> findViews(Pageable pageable);
+
+    @Query(
+            value = """
+                    select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+                    from Device o where o.brand = :brand
+                    """,
+            countQuery = "select count(o) from Device o where o.brand = :brand"
+    )
+    Page<DeviceView> findViewsByBrand(String brand, Pageable pageable);
+
+    @Query(
+            value = """
+                    select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+                    from Device o where o.state = :state
+                    """,
+            countQuery = "select count(o) from Device o where o.state = :state"
+    )
+    Page<DeviceView> findViewsByState(DeviceState state, Pageable pageable);
+
+    // Same pages without the count query, totals are read from DeviceCountRepository
+
+    @Query("select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime) from Device o")
+    List<DeviceView> findViewContent(Pageable pageable);
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o where o.brand = :brand
+            """)
+    List<DeviceView> findViewContentByBrand(String brand, Pageable pageable);
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o where o.state = :state
+            """)
+    List<DeviceView> findViewContentByState(DeviceState state, Pageable pageable);
+
+    // Keyset pagination, pageable carries only the limit so no count query is issued
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o
+            order by o.creationTime, o.id
+            """)
+    List<DeviceView> findFirstKeyset(Pageable pageable);
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o
+            where o.creationTime > :creationTime or (o.creationTime = :creationTime and o.id > :id)
+            order by o.creationTime, o.id
+            """)
+    List<DeviceView> findKeysetAfter(LocalDateTime creationTime, UUID id, Pageable pageable);
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o
+            where o.brand = :brand
+            order by o.creationTime, o.id
+            """)
+    List<DeviceView> findFirstKeysetByBrand(String brand, Pageable pageable);
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o
+            where o.brand = :brand
+              and (o.creationTime > :creationTime or (o.creationTime = :creationTime and o.id > :id))
+            order by o.creationTime, o.id
+            """)
+    List<DeviceView> findKeysetByBrandAfter(String brand, LocalDateTime creationTime, UUID id, Pageable pageable);
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o
+            where o.state = :state
+            order by o.creationTime, o.id
+            """)
+    List<DeviceView> findFirstKeysetByState(DeviceState state, Pageable pageable);
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o
+            where o.state = :state
+              and (o.creationTime > :creationTime or (o.creationTime = :creationTime and o.id > :id))
+            order by o.creationTime, o.id
+            """)
+    List<DeviceView> findKeysetByStateAfter(DeviceState state, LocalDateTime creationTime, UUID id, Pageable pageable);
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o
+            where o.brand = :brand and o.state = :state
+            order by o.creationTime, o.id
+            """)
+    List<DeviceView> findFirstKeysetByBrandAndState(String brand, DeviceState state, Pageable pageable);
+
+    @Query("""
+            select new de.device.demo.dtos.DeviceView(o.id, o.name, o.brand, o.state, o.creationTime)
+            from Device o
+            where o.brand = :brand and o.state = :state
+              and (o.creationTime > :creationTime or (o.creationTime = :creationTime and o.id > :id))
+            order by o.creationTime, o.id
+            """)
+    List<DeviceView> findKeysetByBrandAndStateAfter(
+            String brand,
+            DeviceState state,
+            LocalDateTime creationTime,
+            UUID id,
+            Pageable pageable
+    );
+
+    @Query("""
+            select new de.device.demo.models.DeviceStatsBucket(
+                o.brand, o.state, year(o.creationTime), month(o.creationTime), count(o)
+            )
+            from Device o
+            group by o.brand, o.state, year(o.creationTime), month(o.creationTime)
+            """)
+    List<DeviceStatsBucket> findStatsBuckets();
+
+    // Export streams, read through a server-side cursor and must be consumed inside a transaction
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select o from Device o")
+    Stream<Device> streamAll();
 
-    @Lock(PESSIMISTIC_READ)
-    @Query("select o from Device o where o.id = :id")
-    Optional<Device> findByIdForUpdate(UUID id);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select o from Device o where o.brand = :brand")
+    Stream<Device> streamByBrand(String brand);
 
-    Page<Device> findByBrand(String brand, Pageable pageable);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select o from Device o where o.state = :state")
+    Stream<Device> streamByState(DeviceState state);
 
-    Page<Device> findByState(DeviceState state, Pageable pageable);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select o from Device o where o.brand = :brand and o.state = :state")
+    Stream<Device> streamByBrandAndState(String brand, DeviceState state);
 }
@@ -0,0 +1,187 @@
+package de.device.demo.repositories;
+
+import de.device.demo.entities.Device;
+import de.device.demo.models.DeviceState;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Conditional single-statement writes, the IN_USE rule and the expected version are part of the WHERE clause,
+ * so a successful write costs one round trip and no separate locking read.
+ * Updates and deletes return the previous row, which callers need to adjust device counts.
+ * PostgreSQL skips existing ids with ON CONFLICT, other databases (H2) insert with MERGE.
+ * Must run inside a transaction.
+ */
+@Repository
+@Timed(value = "devices.repository", description = "Device statements outside Spring Data repositories")
+public class DeviceWriteRepository {
+
+    private static final String COLUMNS = "id, name, brand, state, creation_time, version";
+
+    private static final String INSERT_ON_CONFLICT_SQL = """
+            INSERT INTO devices (id, name, brand, state, creation_time, version)
+            VALUES (:id, :name, :brand, :state, :creationTime, 0)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final String MERGE_SQL = """
+            MERGE INTO devices d
+            USING (VALUES (CAST(:id AS UUID))) s (id) ON d.id = s.id
+            WHEN NOT MATCHED THEN INSERT (id, name, brand, state, creation_time, version)
+            VALUES (:id, :name, :brand, :state, :creationTime, 0)
+            """;
+
+    private final EntityManager entityManager;
+    private final boolean postgres;
+
+    @Autowired
+    public DeviceWriteRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.postgres = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect() instanceof PostgreSQLDialect;
+    }
+
+    /**
+     * Sets the non-null fields and bumps the version. Renames are only applied while the device is not IN_USE.
+     *
+     * @return detached device as it was before the update or null when no row matched
+     */
+    public Device updateIfModifiable(UUID id, String name, String brand, DeviceState state, Long expectedVersion) {
+        var alias = postgres ? "d." : "";
+        var parameters = new HashMap<String, Object>();
+        var set = new StringBuilder("version = " + alias + "version + 1");
+        var where = new StringBuilder(alias + "id = :id");
+        parameters.put("id", id);
+
+        if (name != null) {
+            set.append(", name = :name");
+            parameters.put("name", name);
+        }
+
+        if (brand != null) {
+            set.append(", brand = :brand");
+            parameters.put("brand", brand);
+        }
+
+        if (state != null) {
+            set.append(", state = :state");
+            parameters.put("state", state.name());
+        }
+
+        if (name != null || brand != null) {
+            where.append(" AND ").append(alias).append("state <> 'IN_USE'");
+        }
+
+        if (expectedVersion != null) {
+            where.append(" AND ").append(alias).append("version = :version");
+            parameters.put("version", expectedVersion);
+        }
+
+        return updatePrevious(set.toString(), where.toString(), parameters);
+    }
+
+    /**
+     * Replaces name, brand and state and bumps the version, a rename is only applied while the device is not IN_USE.
+     * Setting the same name and brand on an IN_USE device is allowed.
+     *
+     * @return detached device as it was before the update or null when no row matched
+     */
+    public Device replaceIfModifiable(UUID id, String name, String brand, DeviceState state, Long expectedVersion) {
+        var alias = postgres ? "d." : "";
+        var parameters = new HashMap<String, Object>();
+        var set = "version = " + alias + "version + 1, name = :name, brand = :brand, state = :state";
+        var where = new StringBuilder("%1$sid = :id AND (%1$sstate <> 'IN_USE' OR (%1$sname = :name AND %1$sbrand = :brand))".formatted(alias));
+        parameters.put("id", id);
+        parameters.put("name", name);
+        parameters.put("brand", brand);
+        parameters.put("state", state.name());
+
+        if (expectedVersion != null) {
+            where.append(" AND ").append(alias).append("version = :version");
+            parameters.put("version", expectedVersion);
+        }
+
+        return updatePrevious(set, where.toString(), parameters);
+    }
+
+    /**
+     * Inserts the device unless its id is taken, concurrent inserts of the same id don't fail with a duplicate key.
+     *
+     * @return true when the device was inserted
+     */
+    public boolean insertIfAbsent(Device device) {
+        return entityManager.createNativeQuery(postgres ? INSERT_ON_CONFLICT_SQL : MERGE_SQL)
+                .setParameter("id", device.getId())
+                .setParameter("name", device.getName())
+                .setParameter("brand", device.getBrand())
+                .setParameter("state", device.getState().name())
+                .setParameter("creationTime", device.getCreationTime())
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * @return detached deleted device or null when no device existed that was not IN_USE and had the expected version
+     */
+    public Device deleteIfModifiable(UUID id, Long expectedVersion) {
+        var parameters = new HashMap<String, Object>();
+        var where = new StringBuilder("id = :id AND state <> 'IN_USE'");
+        parameters.put("id", id);
+
+        if (expectedVersion != null) {
+            where.append(" AND version = :version");
+            parameters.put("version", expectedVersion);
+        }
+
+        var sql = postgres
+                ? "DELETE FROM devices WHERE " + where + " RETURNING " + COLUMNS
+                : "SELECT " + COLUMNS + " FROM OLD TABLE (DELETE FROM devices WHERE " + where + ")";
+
+        return previous(sql, parameters);
+    }
+
+    /**
+     * PostgreSQL only returns new values from an UPDATE, the previous row comes from a self-join evaluated in the
+     * same statement. Its FOR UPDATE locks the row while the join is scanned, before the UPDATE takes its own lock,
+     * so the previous values can't change in between. The row stays locked even when the WHERE clause rejects the
+     * update, until the transaction ends. H2 reads it from OLD TABLE.
+     */
+    private Device updatePrevious(String set, String where, Map<String, Object> parameters) {
+        var sql = postgres
+                ? "UPDATE devices d SET " + set
+                        + " FROM (SELECT " + COLUMNS + " FROM devices WHERE id = :id FOR UPDATE) o"
+                        + " WHERE d.id = o.id AND " + where
+                        + " RETURNING o.id, o.name, o.brand, o.state, o.creation_time, o.version"
+                : "SELECT " + COLUMNS + " FROM OLD TABLE (UPDATE devices SET " + set + " WHERE " + where + ")";
+
+        return previous(sql, parameters);
+    }
+
+    private Device previous(String sql, Map<String, Object> parameters) {
+        var query = entityManager.createNativeQuery(sql, Device.class);
+        parameters.forEach(query::setParameter);
+
+        @SuppressWarnings("unchecked")
+        List<Device> rows = query.getResultList();
+
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        // The row no longer looks like this, keep it out of the persistence context
+        var device = rows.getFirst();
+        entityManager.detach(device);
+
+        return device;
+    }
+}
@@ -0,0 +1,310 @@
+package de.device.demo.services;
+
+import de.device.demo.components.DeviceOutbox;
+import de.device.demo.dtos.DeviceCreateRequest;
+import de.device.demo.dtos.DevicePutRequest;
+import de.device.demo.entities.Device;
+import de.device.demo.events.DevicesImportedEvent;
+import de.device.demo.factories.DeviceFactory;
+import de.device.demo.models.DeviceCountChanges;
+import de.device.demo.models.DeviceImportFormat;
+import de.device.demo.models.DeviceImportRejection;
+import de.device.demo.models.DeviceImportResult;
+import de.device.demo.models.DeviceState;
+import de.device.demo.models.DeviceStatsChanges;
+import de.device.demo.repositories.DeviceCountRepository;
+import de.device.demo.repositories.DeviceImportRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+@Service
+@Timed(value = "devices.service", description = "Device service calls")
+public class DefaultDeviceImportService implements DeviceImportService {
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    private static final DateTimeFormatter CREATION_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private final DeviceFactory deviceFactory;
+    private final DeviceImportRepository deviceImportRepository;
+    private final DeviceCountRepository deviceCountRepository;
+    private final DeviceOutbox deviceOutbox;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public DefaultDeviceImportService(
+            DeviceFactory deviceFactory,
+            DeviceImportRepository deviceImportRepository,
+            DeviceCountRepository deviceCountRepository,
+            DeviceOutbox deviceOutbox,
+            Validator validator,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher
+    ) {
+        this.deviceFactory = deviceFactory;
+        this.deviceImportRepository = deviceImportRepository;
+        this.deviceCountRepository = deviceCountRepository;
+        this.deviceOutbox = deviceOutbox;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Reads the input line by line, valid rows go straight to the bulk writer and rejected rows are only counted,
+     * so the file is never held in memory. Each written chunk gets its outbox messages right away.
+     * The whole import is one transaction.
+     */
+    @Override
+    @Transactional
+    public DeviceImportResult importDevices(InputStream input, DeviceImportFormat format) {
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        var rows = new ImportRows(reader, format);
+
+        var accepted = deviceImportRepository.writeAll(rows, deviceOutbox::imported);
+        deviceCountRepository.apply(rows.countChanges);
+        eventPublisher.publishEvent(new DevicesImportedEvent(accepted, rows.statsChanges));
+
+        return new DeviceImportResult(accepted, rows.rejected, rows.rejections);
+    }
+
+    private Device toDevice(String name, String brand, String state, LocalDateTime creationTime, Map<String, String> errors) {
+        if (state == null && creationTime == null) {
+            var request = new DeviceCreateRequest(name, brand);
+            collectViolations(validator.validate(request), errors);
+
+            return errors.isEmpty() ? deviceFactory.createDevice(name, brand) : null;
+        }
+
+        var request = new DevicePutRequest(name, brand, state, creationTime);
+        collectViolations(validator.validate(request), errors);
+
+        if (!errors.isEmpty()) {
+            return null;
+        }
+
+        var device = deviceFactory.createDevice(name, brand);
+        device.setState(DeviceState.valueOf(state));
+
+        if (creationTime != null) {
+            device.setCreationTime(creationTime);
+        }
+
+        return device;
+    }
+
+    private static <T> void collectViolations(Set<ConstraintViolation<T>> violations, Map<String, String> errors) {
+        violations.forEach(violation -> errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+    }
+
+    /**
+     * Lazily parses the next valid device, recording rejected lines on the way.
+     */
+    private class ImportRows implements Iterator<Device> {
+
+        private final BufferedReader reader;
+        private final DeviceImportFormat format;
+        private final List<DeviceImportRejection> rejections = new ArrayList<>();
+        private final DeviceCountChanges countChanges = new DeviceCountChanges();
+        private final DeviceStatsChanges statsChanges = new DeviceStatsChanges();
+        private Map<String, Integer> csvColumns;
+        private long lineNumber;
+        private long rejected;
+        private Device next;
+
+        ImportRows(BufferedReader reader, DeviceImportFormat format) {
+            this.reader = reader;
+            this.format = format;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    var line = reader.readLine();
+
+                    if (line == null) {
+                        return false;
+                    }
+
+                    lineNumber++;
+
+                    if (line.isBlank()) {
+                        continue;
+                    }
+
+                    if (format == DeviceImportFormat.CSV && csvColumns == null) {
+                        csvColumns = parseCsvHeader(line);
+                        continue;
+                    }
+
+                    var errors = new HashMap<String, String>();
+                    next = format == DeviceImportFormat.CSV ? parseCsv(line, errors) : parseNdjson(line, errors);
+
+                    if (next == null) {
+                        reject(errors);
+                    }
+                }
+
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Device next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            var device = next;
+            next = null;
+            countChanges.added(device.getBrand(), device.getState());
+            statsChanges.added(device.getBrand(), device.getState(), device.getCreationTime());
+
+            return device;
+        }
+
+        private void reject(Map<String, String> errors) {
+            rejected++;
+
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(new DeviceImportRejection(lineNumber, errors));
+            }
+        }
+
+        private Device parseNdjson(String line, Map<String, String> errors) {
+            DevicePutRequest request;
+
+            try {
+                request = objectMapper.readValue(line, DevicePutRequest.class);
+            } catch (JacksonException e) {
+                errors.put("message", "Malformed JSON line");
+
+                return null;
+            }
+
+            return toDevice(request.name(), request.brand(), request.state(), request.creationTime(), errors);
+        }
+
+        private Device parseCsv(String line, Map<String, String> errors) {
+            var fields = splitCsv(line);
+
+            if (fields.size() != csvColumns.size()) {
+                errors.put("message", "Expected " + csvColumns.size() + " columns but found " + fields.size());
+
+                return null;
+            }
+
+            LocalDateTime creationTime = null;
+            var creationTimeText = csvValue(fields, "creation_time");
+
+            if (creationTimeText != null) {
+                try {
+                    creationTime = LocalDateTime.parse(creationTimeText, CREATION_TIME_FORMAT);
+                } catch (DateTimeParseException e) {
+                    errors.put("creation_time", "Creation time should use yyyy-MM-dd'T'HH:mm:ss format");
+
+                    return null;
+                }
+            }
+
+            return toDevice(
+                    fields.get(csvColumns.get("name")),
+                    fields.get(csvColumns.get("brand")),
+                    csvValue(fields, "state"),
+                    creationTime,
+                    errors
+            );
+        }
+
+        private String csvValue(List<String> fields, String column) {
+            var index = csvColumns.get(column);
+
+            if (index == null || fields.get(index).isEmpty()) {
+                return null;
+            }
+
+            return fields.get(index);
+        }
+
+        private static Map<String, Integer> parseCsvHeader(String line) {
+            var columns = new HashMap<String, Integer>();
+            var names = splitCsv(line);
+
+            for (int i = 0; i < names.size(); i++) {
+                var name = names.get(i).strip();
+
+                if (!Set.of("name", "brand", "state", "creation_time").contains(name)) {
+                    throw new IllegalArgumentException("Unknown CSV column " + name + ", use name, brand, state and creation_time");
+                }
+
+                columns.put(name, i);
+            }
+
+            if (!columns.containsKey("name") || !columns.containsKey("brand")) {
+                throw new IllegalArgumentException("CSV header should contain name and brand columns");
+            }
+
+            return columns;
+        }
+
+        private static List<String> splitCsv(String line) {
+            var fields = new ArrayList<String>();
+            var field = new StringBuilder();
+            boolean quoted = false;
+
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+
+            fields.add(field.toString());
+
+            return fields;
+        }
+    }
+}
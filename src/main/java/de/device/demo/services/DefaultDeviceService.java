@@ -1,158 +1,376 @@
 package de.device.demo.services;
 
+import de.device.demo.components.DeviceCache;
 import de.device.demo.dtos.DeviceCreateRequest;
 import de.device.demo.dtos.DevicePatchRequest;
 import de.device.demo.dtos.DevicePutRequest;
+import de.device.demo.dtos.DeviceView;
 import de.device.demo.entities.Device;
 import de.device.demo.errors.DeviceInUseDeleteException;
 import de.device.demo.errors.DeviceInUseUpdateModificationException;
 import de.device.demo.errors.DeviceNotFoundException;
 import de.device.demo.errors.DeviceUpdateCreationTimeException;
+import de.device.demo.errors.DeviceVersionMismatchException;
+import de.device.demo.events.DeviceChangedEvent;
 import de.device.demo.factories.DeviceFactory;
+import de.device.demo.models.DeviceCountChanges;
+import de.device.demo.models.DeviceCursor;
+import de.device.demo.models.DeviceFilter;
 import de.device.demo.models.DeviceState;
+import de.device.demo.models.DeviceWindow;
 import de.device.demo.models.UpsertDevice;
+import de.device.demo.repositories.DeviceBatchRepository;
+import de.device.demo.repositories.DeviceCountRepository;
 import de.device.demo.repositories.DeviceRepository;
+import de.device.demo.repositories.DeviceWriteRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "devices.service", description = "Device service calls")
 public class DefaultDeviceService implements DeviceService {
 
     private final DeviceFactory deviceFactory;
     private final DeviceRepository deviceRepository;
     private final EntityManager entityManager;
+    private final DeviceCache deviceCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DeviceBatchRepository deviceBatchRepository;
+    private final DeviceWriteRepository deviceWriteRepository;
+    private final DeviceCountRepository deviceCountRepository;
 
     @Autowired
     public DefaultDeviceService(
             DeviceFactory deviceFactory,
             DeviceRepository deviceRepository,
-            EntityManager entityManager
+            EntityManager entityManager,
+            DeviceCache deviceCache,
+            ApplicationEventPublisher eventPublisher,
+            DeviceBatchRepository deviceBatchRepository,
+            DeviceWriteRepository deviceWriteRepository,
+            DeviceCountRepository deviceCountRepository
     ) {
         this.deviceFactory = deviceFactory;
         this.deviceRepository = deviceRepository;
         this.entityManager = entityManager;
+        this.deviceCache = deviceCache;
+        this.eventPublisher = eventPublisher;
+        this.deviceBatchRepository = deviceBatchRepository;
+        this.deviceWriteRepository = deviceWriteRepository;
+        this.deviceCountRepository = deviceCountRepository;
     }
 
     @Override
     @Transactional
     public Device create(DeviceCreateRequest deviceCreateRequest) {
         var device = deviceFactory.createDevice(deviceCreateRequest.name(), deviceCreateRequest.brand());
-        return deviceRepository.save(device);
+        var saved = deviceRepository.save(device);
+
+        deviceCountRepository.apply(new DeviceCountChanges().added(saved.getBrand(), saved.getState()));
+        eventPublisher.publishEvent(DeviceChangedEvent.created(saved));
+
+        return saved;
     }
 
+    @Override
+    @Transactional
+    public List<Device> createAll(List<DeviceCreateRequest> requests) {
+        var devices = new ArrayList<Device>(requests.size());
+        var countChanges = new DeviceCountChanges();
+
+        for (var request : requests) {
+            var device = deviceFactory.createDevice(request.name(), request.brand());
+            devices.add(device);
+            countChanges.added(device.getBrand(), device.getState());
+        }
+
+        deviceBatchRepository.persistAll(devices);
+        deviceCountRepository.apply(countChanges);
+
+        for (var device : devices) {
+            eventPublisher.publishEvent(DeviceChangedEvent.created(device));
+        }
+
+        return devices;
+    }
+
+    /**
+     * Totals come from the maintained device counts unless {@code exactCount} asks for a COUNT query.
+     */
     @Override
     @Transactional(readOnly = true)
-    public Page<Device> getDevices(Pageable pageable) {
-        return deviceRepository.findAll(pageable);
+    public Page<DeviceView> getDevices(Pageable pageable, boolean exactCount) {
+        if (exactCount) {
+            return deviceRepository.findViews(pageable);
+        }
+
+        return PageableExecutionUtils.getPage(deviceRepository.findViewContent(pageable), pageable, deviceCountRepository::countAll);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Device> getDevicesByBrand(String brand, Pageable pageable) {
-        return deviceRepository.findByBrand(brand, pageable);
+    public Page<DeviceView> getDevicesByBrand(String brand, Pageable pageable, boolean exactCount) {
+        if (exactCount) {
+            return deviceRepository.findViewsByBrand(brand, pageable);
+        }
+
+        return PageableExecutionUtils.getPage(
+                deviceRepository.findViewContentByBrand(brand, pageable),
+                pageable,
+                () -> deviceCountRepository.countByBrand(brand)
+        );
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Device> getDevicesByState(DeviceState state, Pageable pageable) {
-        return deviceRepository.findByState(state, pageable);
+    public Page<DeviceView> getDevicesByState(DeviceState state, Pageable pageable, boolean exactCount) {
+        if (exactCount) {
+            return deviceRepository.findViewsByState(state, pageable);
+        }
+
+        return PageableExecutionUtils.getPage(
+                deviceRepository.findViewContentByState(state, pageable),
+                pageable,
+                () -> deviceCountRepository.countByState(state)
+        );
     }
 
     @Override
     @Transactional(readOnly = true)
+    public Page<DeviceView> getDevicesByFilter(DeviceFilter filter, Pageable pageable) {
+        return deviceRepository.findViews(filter, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DeviceWindow getDevicesWindow(String brand, DeviceState state, DeviceCursor cursor, int size) {
+        // One extra row tells whether a next page exists without counting
+        var limit = PageRequest.of(0, size + 1);
+        List<DeviceView> devices;
+
+        if (brand != null && state != null) {
+            devices = cursor == null
+                    ? deviceRepository.findFirstKeysetByBrandAndState(brand, state, limit)
+                    : deviceRepository.findKeysetByBrandAndStateAfter(brand, state, cursor.creationTime(), cursor.id(), limit);
+        } else if (brand != null) {
+            devices = cursor == null
+                    ? deviceRepository.findFirstKeysetByBrand(brand, limit)
+                    : deviceRepository.findKeysetByBrandAfter(brand, cursor.creationTime(), cursor.id(), limit);
+        } else if (state != null) {
+            devices = cursor == null
+                    ? deviceRepository.findFirstKeysetByState(state, limit)
+                    : deviceRepository.findKeysetByStateAfter(state, cursor.creationTime(), cursor.id(), limit);
+        } else {
+            devices = cursor == null
+                    ? deviceRepository.findFirstKeyset(limit)
+                    : deviceRepository.findKeysetAfter(cursor.creationTime(), cursor.id(), limit);
+        }
+
+        if (devices.size() <= size) {
+            return new DeviceWindow(devices, null);
+        }
+
+        var page = devices.subList(0, size);
+
+        return new DeviceWindow(page, DeviceCursor.of(page.getLast()));
+    }
+
+    /**
+     * Each device is detached once consumed, so memory stays flat no matter how many rows are exported.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportDevices(String brand, DeviceState state, Consumer<Device> consumer) {
+        try (var devices = streamDevices(brand, state)) {
+            devices.forEach(device -> {
+                consumer.accept(device);
+                entityManager.detach(device);
+            });
+        }
+    }
+
+    /**
+     * Not transactional on purpose, cache hits don't take a connection and misses load in the repository transaction.
+     */
+    @Override
     public Device getById(UUID id) {
-        return deviceRepository.findById(id)
-                .orElseThrow(() -> new DeviceNotFoundException(id));
+        var device = deviceCache.get(id, key -> deviceRepository.findById(key).orElse(null));
+
+        if (device == null) {
+            throw new DeviceNotFoundException(id);
+        }
+
+        return device;
     }
 
+    /**
+     * One conditional UPDATE on the success path, the row is only read when it didn't match to tell why.
+     */
     @Override
     @Transactional
-    public Device update(UUID id, DevicePatchRequest devicePatchRequest) {
-        var device = deviceRepository.findByIdForUpdate(id)
-                .orElseThrow(() -> new DeviceNotFoundException(id));
+    public Device update(UUID id, DevicePatchRequest devicePatchRequest, Long expectedVersion) {
+        var state = devicePatchRequest.state() != null ? DeviceState.valueOf(devicePatchRequest.state()) : null;
+        var previous = deviceWriteRepository.updateIfModifiable(
+                id,
+                devicePatchRequest.name(),
+                devicePatchRequest.brand(),
+                state,
+                expectedVersion
+        );
 
-        if (
-                (devicePatchRequest.name() != null || devicePatchRequest.brand() != null) &&
-                        device.getState() == DeviceState.IN_USE
-        ) {
-            throw new DeviceInUseUpdateModificationException(id);
+        if (previous == null) {
+            throw rejectedWriteCause(id, expectedVersion, () -> new DeviceInUseUpdateModificationException(id));
         }
 
-        device.setName(devicePatchRequest.name() != null ? devicePatchRequest.name() : device.getName());
-        device.setBrand(devicePatchRequest.brand() != null ? devicePatchRequest.brand() : device.getBrand());
-        device.setState(devicePatchRequest.state() != null ? DeviceState.valueOf(devicePatchRequest.state()) : device.getState());
+        var device = new Device(
+                id,
+                devicePatchRequest.name() != null ? devicePatchRequest.name() : previous.getName(),
+                devicePatchRequest.brand() != null ? devicePatchRequest.brand() : previous.getBrand(),
+                state != null ? state : previous.getState(),
+                previous.getCreationTime(),
+                previous.getVersion() + 1
+        );
+
+        deviceCountRepository.apply(new DeviceCountChanges().moved(
+                previous.getBrand(), previous.getState(), device.getBrand(), device.getState()
+        ));
+        eventPublisher.publishEvent(DeviceChangedEvent.updated(previous, device));
 
-        return deviceRepository.saveAndFlush(device);
+        return device;
     }
 
+    /**
+     * A PUT with creation_time can only create and one without can only replace, so each case is a single
+     * statement: an insert that skips taken ids or a conditional replace. The row is only read when it didn't match.
+     */
     @Override
     @Transactional
-    public UpsertDevice upsert(UUID id, DevicePutRequest devicePutRequest) {
-        boolean created;
-        Device device;
-
-        var deviceEntity = deviceRepository.findByIdForUpdate(id);
-        if (deviceEntity.isPresent()) {
-            device = updateExisting(deviceEntity.get(), devicePutRequest);
-            created = false;
-        } else {
-            device = createNew(id, devicePutRequest);
-            created = true;
+    public UpsertDevice upsert(UUID id, DevicePutRequest devicePutRequest, Long expectedVersion) {
+        var state = DeviceState.valueOf(devicePutRequest.state());
+
+        if (devicePutRequest.creationTime() != null && expectedVersion != null) {
+            checkVersion(deviceRepository.findById(id).orElseThrow(() -> new DeviceNotFoundException(id)), expectedVersion);
+
+            throw new DeviceUpdateCreationTimeException(id);
         }
 
-        var saved = deviceRepository.save(device);
+        if (devicePutRequest.creationTime() != null) {
+            var device = deviceFactory.createDevice(
+                    id,
+                    devicePutRequest.name(),
+                    devicePutRequest.brand(),
+                    state,
+                    devicePutRequest.creationTime()
+            );
+
+            if (!deviceWriteRepository.insertIfAbsent(device)) {
+                throw new DeviceUpdateCreationTimeException(id);
+            }
+
+            deviceCountRepository.apply(new DeviceCountChanges().added(device.getBrand(), device.getState()));
+            eventPublisher.publishEvent(DeviceChangedEvent.created(device));
+
+            return new UpsertDevice(true, device);
+        }
+
+        var previous = deviceWriteRepository.replaceIfModifiable(
+                id,
+                devicePutRequest.name(),
+                devicePutRequest.brand(),
+                state,
+                expectedVersion
+        );
+
+        if (previous == null) {
+            throw rejectedReplaceCause(id, expectedVersion);
+        }
+
+        var device = new Device(
+                id,
+                devicePutRequest.name(),
+                devicePutRequest.brand(),
+                state,
+                previous.getCreationTime(),
+                previous.getVersion() + 1
+        );
+
+        deviceCountRepository.apply(new DeviceCountChanges().moved(
+                previous.getBrand(), previous.getState(), device.getBrand(), device.getState()
+        ));
+        eventPublisher.publishEvent(DeviceChangedEvent.updated(previous, device));
 
-        return new UpsertDevice(created, saved);
+        return new UpsertDevice(false, device);
     }
 
     @Override
     @Transactional
-    public void delete(UUID id) {
-        var device = deviceRepository.findByIdForUpdate(id)
-                .orElseThrow(() -> new DeviceNotFoundException(id));
+    public void delete(UUID id, Long expectedVersion) {
+        var previous = deviceWriteRepository.deleteIfModifiable(id, expectedVersion);
 
-        if (device.getState() == DeviceState.IN_USE) {
-            throw new DeviceInUseDeleteException(id);
+        if (previous == null) {
+            throw rejectedWriteCause(id, expectedVersion, () -> new DeviceInUseDeleteException(id));
         }
 
-        deviceRepository.deleteById(id);
+        deviceCountRepository.apply(new DeviceCountChanges().removed(previous.getBrand(), previous.getState()));
+        eventPublisher.publishEvent(DeviceChangedEvent.deleted(previous));
     }
 
-    private Device updateExisting(Device device, DevicePutRequest putRequest) {
-        if (putRequest.creationTime() != null) {
-            throw new DeviceUpdateCreationTimeException(device.getId());
+    private static void checkVersion(Device device, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != device.getVersion()) {
+            throw new DeviceVersionMismatchException(device.getId(), expectedVersion, device.getVersion());
         }
+    }
+
+    /**
+     * Reads the device after a conditional write matched no row. When the row looks writable by now,
+     * it was changed between the two statements and the caller gets a concurrent modification error.
+     */
+    private RuntimeException rejectedWriteCause(UUID id, Long expectedVersion, Supplier<RuntimeException> inUse) {
+        var device = deviceRepository.findById(id)
+                .orElseThrow(() -> new DeviceNotFoundException(id));
 
-        boolean nameOrBrandChanged = !putRequest.name().equals(device.getName()) || !putRequest.brand().equals(device.getBrand());
+        checkVersion(device, expectedVersion);
 
-        if (nameOrBrandChanged && device.getState() == DeviceState.IN_USE) {
-            throw new DeviceInUseUpdateModificationException(device.getId());
+        if (device.getState() == DeviceState.IN_USE) {
+            return inUse.get();
         }
 
-        device.setName(putRequest.name());
-        device.setBrand(putRequest.brand());
-        device.setState(DeviceState.valueOf(putRequest.state()));
+        return new ObjectOptimisticLockingFailureException(Device.class, id);
+    }
+
+    private Stream<Device> streamDevices(String brand, DeviceState state) {
+        if (brand != null && state != null) {
+            return deviceRepository.streamByBrandAndState(brand, state);
+        } else if (brand != null) {
+            return deviceRepository.streamByBrand(brand);
+        } else if (state != null) {
+            return deviceRepository.streamByState(state);
+        }
 
-        return device;
+        return deviceRepository.streamAll();
     }
 
-    private Device createNew(UUID id, DevicePutRequest putRequest) {
-        if (putRequest.creationTime() == null) {
-            throw new IllegalArgumentException("A required field 'creation_time' is missing");
+    private RuntimeException rejectedReplaceCause(UUID id, Long expectedVersion) {
+        if (expectedVersion == null && !deviceRepository.existsById(id)) {
+            return new IllegalArgumentException("A required field 'creation_time' is missing");
         }
 
-        return deviceFactory.createDevice(
-                id,
-                putRequest.name(),
-                putRequest.brand(),
-                DeviceState.valueOf(putRequest.state()),
-                putRequest.creationTime()
-        );
+        return rejectedWriteCause(id, expectedVersion, () -> new DeviceInUseUpdateModificationException(id));
     }
 }
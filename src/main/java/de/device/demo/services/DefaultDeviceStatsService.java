@@ -0,0 +1,146 @@
+package de.device.demo.services;
+
+import de.device.demo.dtos.DeviceView;
+import de.device.demo.events.DeviceChangedEvent;
+import de.device.demo.events.DevicesImportedEvent;
+import de.device.demo.models.DeviceState;
+import de.device.demo.models.DeviceStats;
+import de.device.demo.repositories.DeviceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps device totals per brand, state and creation month in memory. Built from one grouped query at startup,
+ * then moved by committed change events, so reading the stats never touches the devices table.
+ * <p>
+ * Imports carry their totals per bucket and are added like single changes, the full rebuild only runs at startup
+ * and from the reconciler. Events that commit while a rebuild runs may be lost or counted twice, the next rebuild
+ * corrects that.
+ */
+@Service
+public class DefaultDeviceStatsService implements DeviceStatsService {
+
+    private final DeviceRepository deviceRepository;
+    private final AtomicLong changes = new AtomicLong();
+
+    private volatile Map<Bucket, LongAdder> buckets = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public DefaultDeviceStatsService(DeviceRepository deviceRepository) {
+        this.deviceRepository = deviceRepository;
+    }
+
+    /**
+     * Served from the last snapshot while nothing changed, otherwise summed over the buckets,
+     * which grow with brands and months but not with devices.
+     */
+    @Override
+    public DeviceStats getStats() {
+        var current = snapshot;
+        var version = changes.get();
+
+        if (current != null && current.version() == version) {
+            return current.stats();
+        }
+
+        var stats = summarize(buckets);
+        snapshot = new Snapshot(version, stats);
+
+        return stats;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        var rebuilt = new ConcurrentHashMap<Bucket, LongAdder>();
+
+        for (var row : deviceRepository.findStatsBuckets()) {
+            var bucket = new Bucket(row.brand(), row.state(), YearMonth.of(row.year(), row.month()));
+            rebuilt.computeIfAbsent(bucket, key -> new LongAdder()).add(row.total());
+        }
+
+        buckets = rebuilt;
+        changes.incrementAndGet();
+    }
+
+    @TransactionalEventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (event.previous() != null) {
+            add(event.previous(), -1);
+        }
+
+        if (event.current() != null) {
+            add(event.current(), 1);
+        }
+
+        changes.incrementAndGet();
+    }
+
+    @TransactionalEventListener
+    public void onDevicesImported(DevicesImportedEvent event) {
+        for (var row : event.statsChanges().buckets()) {
+            add(new Bucket(row.brand(), row.state(), YearMonth.of(row.year(), row.month())), row.total());
+        }
+
+        changes.incrementAndGet();
+    }
+
+    private void add(DeviceView device, long delta) {
+        add(new Bucket(device.brand(), device.state(), YearMonth.from(device.creationTime())), delta);
+    }
+
+    private void add(Bucket bucket, long delta) {
+        buckets.computeIfAbsent(bucket, key -> new LongAdder()).add(delta);
+    }
+
+    private static DeviceStats summarize(Map<Bucket, LongAdder> buckets) {
+        long total = 0;
+        var states = emptyStates();
+        var brands = new TreeMap<String, Map<DeviceState, Long>>();
+        var histogram = new TreeMap<YearMonth, Map<DeviceState, Long>>();
+
+        for (var entry : buckets.entrySet()) {
+            var bucket = entry.getKey();
+            var count = entry.getValue().sum();
+
+            if (count == 0) {
+                continue;
+            }
+
+            total += count;
+            states.merge(bucket.state(), count, Long::sum);
+            brands.computeIfAbsent(bucket.brand(), key -> emptyStates()).merge(bucket.state(), count, Long::sum);
+            histogram.computeIfAbsent(bucket.month(), key -> emptyStates()).merge(bucket.state(), count, Long::sum);
+        }
+
+        return new DeviceStats(total, states, brands, histogram);
+    }
+
+    private static Map<DeviceState, Long> emptyStates() {
+        var states = new EnumMap<DeviceState, Long>(DeviceState.class);
+
+        for (var state : DeviceState.values()) {
+            states.put(state, 0L);
+        }
+
+        return states;
+    }
+
+    private record Bucket(String brand, DeviceState state, YearMonth month) {
+    }
+
+    private record Snapshot(long version, DeviceStats stats) {
+    }
+}
@@ -0,0 +1,286 @@
+package de.device.demo.services;
+
+import de.device.demo.dtos.DeviceView;
+import de.device.demo.events.DeviceChangedEvent;
+import de.device.demo.events.DevicesImportedEvent;
+import de.device.demo.models.DeviceState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans committed device changes out to SSE subscribers.
+ * <p>
+ * Changes get a sequence number and are kept in a bounded ring buffer, so a reconnecting client resumes after
+ * its Last-Event-ID. Event ids carry the instance epoch, ids from another instance or an evicted position
+ * get a {@code reset} event telling the client to reload its state. Imports aren't announced per device, they
+ * send every subscriber a {@code reset} as well, also when replayed.
+ * <p>
+ * Writers only offer into per-subscriber bounded queues, in sequence order, sending happens on virtual threads.
+ * A subscriber whose queue is full is dropped instead of slowing down writes.
+ */
+@Service
+public class DefaultDeviceStreamService implements DeviceStreamService, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultDeviceStreamService.class);
+
+    private static final Change HEARTBEAT = new Change(-1, null);
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Change[] buffer;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter droppedCounter;
+
+    // Guarded by the buffer, appends and subscriptions are ordered so a resuming client misses nothing
+    private long sequence;
+
+    @Autowired
+    public DefaultDeviceStreamService(
+            MeterRegistry meterRegistry,
+            @Value("${devices.stream.buffer-size}") int bufferSize,
+            @Value("${devices.stream.subscriber-queue-size}") int queueCapacity,
+            @Value("${devices.stream.timeout}") Duration timeout
+    ) {
+        this.buffer = new Change[bufferSize];
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.droppedCounter = Counter.builder("devices.stream.dropped")
+                .description("SSE subscribers dropped for falling behind")
+                .register(meterRegistry);
+
+        meterRegistry.gaugeCollectionSize("devices.stream.subscribers", List.of(), subscribers);
+    }
+
+    @Override
+    public SseEmitter subscribe(String brand, DeviceState state, String lastEventId) {
+        var emitter = new SseEmitter(timeoutMillis);
+        var subscriber = new Subscriber(emitter, brand, state, new ArrayBlockingQueue<>(queueCapacity));
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        synchronized (buffer) {
+            subscriber.reset = lastEventId != null && !replay(subscriber, lastEventId);
+            subscribers.add(subscriber);
+        }
+
+        schedule(subscriber);
+
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        // Offers stay under the lock, otherwise concurrent writers could queue their changes out of sequence
+        synchronized (buffer) {
+            var change = append(event);
+
+            for (var subscriber : subscribers) {
+                if (subscriber.matches(event)) {
+                    offer(subscriber, change);
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener
+    public void onDevicesImported(DevicesImportedEvent event) {
+        synchronized (buffer) {
+            var change = append(null);
+
+            for (var subscriber : subscribers) {
+                offer(subscriber, change);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${devices.stream.heartbeat-interval}")
+    public void heartbeat() {
+        for (var subscriber : subscribers) {
+            offer(subscriber, HEARTBEAT);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdownNow();
+    }
+
+    /**
+     * Must hold the buffer lock.
+     */
+    private Change append(DeviceChangedEvent event) {
+        var change = new Change(++sequence, event);
+        buffer[(int) (change.sequence() % buffer.length)] = change;
+
+        return change;
+    }
+
+    /**
+     * @return false when the position is unknown or already evicted from the buffer
+     */
+    private boolean replay(Subscriber subscriber, String lastEventId) {
+        var separator = lastEventId.indexOf(':');
+
+        if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator))) {
+            return false;
+        }
+
+        long last;
+
+        try {
+            last = Long.parseLong(lastEventId, separator + 1, lastEventId.length(), 10);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        if (last > sequence || sequence - last > buffer.length) {
+            return false;
+        }
+
+        for (long next = last + 1; next <= sequence; next++) {
+            var change = buffer[(int) (next % buffer.length)];
+
+            // Changes before an import are covered by the reload the reset asks for
+            if (change.isImport()) {
+                subscriber.replay.clear();
+                subscriber.reset = true;
+            } else if (subscriber.matches(change.event())) {
+                subscriber.replay.add(change);
+            }
+        }
+
+        return true;
+    }
+
+    private void offer(Subscriber subscriber, Change change) {
+        if (!subscriber.queue.offer(change)) {
+            drop(subscriber);
+            return;
+        }
+
+        schedule(subscriber);
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            droppedCounter.increment();
+            log.warn("Dropping SSE subscriber with brand {} and state {}, it fell {} changes behind",
+                    subscriber.brand, subscriber.state, queueCapacity);
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> send(subscriber));
+        }
+    }
+
+    /**
+     * Only one sender runs per subscriber, it drains the queue and re-checks it after releasing the flag,
+     * so an offer racing with the end of a drain is never left behind.
+     */
+    private void send(Subscriber subscriber) {
+        try {
+            do {
+                if (subscriber.reset) {
+                    subscriber.emitter.send(SseEmitter.event().name("reset").data(""));
+                    subscriber.reset = false;
+                }
+
+                Change change;
+
+                while ((change = subscriber.replay.isEmpty() ? subscriber.queue.poll() : subscriber.replay.removeFirst()) != null) {
+                    if (change == HEARTBEAT) {
+                        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else if (change.isImport()) {
+                        subscriber.emitter.send(SseEmitter.event()
+                                .id(epoch + ':' + change.sequence())
+                                .name("reset")
+                                .data(""));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event()
+                                .id(epoch + ':' + change.sequence())
+                                .name(change.event().type().name().toLowerCase())
+                                .data(change.event(), MediaType.APPLICATION_JSON));
+                    }
+                }
+
+                subscriber.sending.set(false);
+            } while (!subscriber.queue.isEmpty() && subscriber.sending.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            subscriber.sending.set(false);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Imports are buffered as changes without an event.
+     */
+    private record Change(long sequence, DeviceChangedEvent event) {
+
+        boolean isImport() {
+            return event == null && sequence >= 0;
+        }
+    }
+
+    private static class Subscriber {
+
+        private final SseEmitter emitter;
+        private final String brand;
+        private final DeviceState state;
+        private final Queue<Change> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final ArrayList<Change> replay = new ArrayList<>();
+        private volatile boolean reset;
+
+        Subscriber(SseEmitter emitter, String brand, DeviceState state, Queue<Change> queue) {
+            this.emitter = emitter;
+            this.brand = brand;
+            this.state = state;
+            this.queue = queue;
+        }
+
+        /**
+         * A change matches when the device matched the filter before or after it, so clients also see
+         * devices leaving their filter.
+         */
+        boolean matches(DeviceChangedEvent event) {
+            return matches(event.previous()) || matches(event.current());
+        }
+
+        private boolean matches(DeviceView device) {
+            return device != null
+                    && (brand == null || brand.equals(device.brand()))
+                    && (state == null || state == device.state());
+        }
+    }
+}
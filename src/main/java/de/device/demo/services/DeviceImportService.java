@@ -0,0 +1,10 @@
+package de.device.demo.services;
+
+import de.device.demo.models.DeviceImportFormat;
+import de.device.demo.models.DeviceImportResult;
+
+import java.io.InputStream;
+
+public interface DeviceImportService {
+    DeviceImportResult importDevices(InputStream input, DeviceImportFormat format);
+}
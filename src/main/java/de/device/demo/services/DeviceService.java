@@ -3,24 +3,36 @@ package de.device.demo.services;
 import de.device.demo.dtos.DeviceCreateRequest;
 import de.device.demo.dtos.DevicePatchRequest;
 import de.device.demo.dtos.DevicePutRequest;
+import de.device.demo.dtos.DeviceView;
 import de.device.demo.entities.Device;
+import de.device.demo.models.DeviceCursor;
+import de.device.demo.models.DeviceFilter;
 import de.device.demo.models.DeviceState;
+import de.device.demo.models.DeviceWindow;
 import de.device.demo.models.UpsertDevice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface DeviceService {
     // Mod
     Device create(DeviceCreateRequest req);
-    Device update(UUID id, DevicePatchRequest deviceCreateRequest);
-    UpsertDevice upsert(UUID id, DevicePutRequest devicePutRequest);
-    void delete(UUID id);
+    List<Device> createAll(List<DeviceCreateRequest> requests);
+    // expectedVersion is optional, when given the write fails unless the stored version matches
+    Device update(UUID id, DevicePatchRequest deviceCreateRequest, Long expectedVersion);
+    UpsertDevice upsert(UUID id, DevicePutRequest devicePutRequest, Long expectedVersion);
+    void delete(UUID id, Long expectedVersion);
 
     // Fetch
-    Page<Device> getDevices(Pageable pageable);
+    // exactCount runs a COUNT query for the page total instead of reading the maintained device counts
+    Page<DeviceView> getDevices(Pageable pageable, boolean exactCount);
     Device getById(UUID id);
-    Page<Device> getDevicesByBrand(String brand, Pageable pageable);
-    Page<Device> getDevicesByState(DeviceState state, Pageable pageable);
+    Page<DeviceView> getDevicesByBrand(String brand, Pageable pageable, boolean exactCount);
+    Page<DeviceView> getDevicesByState(DeviceState state, Pageable pageable, boolean exactCount);
+    Page<DeviceView> getDevicesByFilter(DeviceFilter filter, Pageable pageable);
+    DeviceWindow getDevicesWindow(String brand, DeviceState state, DeviceCursor cursor, int size);
+    void exportDevices(String brand, DeviceState state, Consumer<Device> consumer);
 }
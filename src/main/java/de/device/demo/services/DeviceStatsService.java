@@ -0,0 +1,8 @@
+package de.device.demo.services;
+
+import de.device.demo.models.DeviceStats;
+
+public interface DeviceStatsService {
+    DeviceStats getStats();
+    void rebuild();
+}
@@ -0,0 +1,9 @@
+package de.device.demo.services;
+
+import de.device.demo.models.DeviceState;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface DeviceStreamService {
+    // lastEventId is optional, when given buffered changes after it are replayed first
+    SseEmitter subscribe(String brand, DeviceState state, String lastEventId);
+}
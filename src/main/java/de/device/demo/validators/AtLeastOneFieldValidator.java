@@ -3,28 +3,76 @@ package de.device.demo.validators;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 
 public class AtLeastOneFieldValidator implements ConstraintValidator<AtLeastOneField, Object> {
 
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * Getters are resolved once per validated type, record component accessors for records
+     * and instance field getters otherwise.
+     */
+    private static final ClassValue<MethodHandle[]> GETTERS = new ClassValue<>() {
+        @Override
+        protected MethodHandle[] computeValue(Class<?> type) {
+            try {
+                return type.isRecord() ? recordGetters(type) : fieldGetters(type);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Fields of " + type.getName() + " are not accessible", e);
+            }
+        }
+    };
+
     @Override
     public boolean isValid(Object value, ConstraintValidatorContext context) {
         if (value == null) {
             return false;
         }
 
-        for (Field field : value.getClass().getDeclaredFields()) {
-            field.setAccessible(true);
-
+        for (MethodHandle getter : GETTERS.get(value.getClass())) {
             try {
-                Object fieldValue = field.get(value);
-                if (fieldValue != null) {
+                if ((Object) getter.invokeExact(value) != null) {
                     return true;
                 }
-            } catch (IllegalAccessException ignored) {
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
             }
         }
 
         return false;
     }
+
+    private static MethodHandle[] recordGetters(Class<?> type) throws IllegalAccessException {
+        var lookup = MethodHandles.lookup();
+        var components = type.getRecordComponents();
+        var getters = new MethodHandle[components.length];
+
+        for (int i = 0; i < components.length; i++) {
+            getters[i] = lookup.unreflect(components[i].getAccessor()).asType(GETTER_TYPE);
+        }
+
+        return getters;
+    }
+
+    private static MethodHandle[] fieldGetters(Class<?> type) throws IllegalAccessException {
+        var lookup = MethodHandles.lookup();
+        var getters = new ArrayList<MethodHandle>();
+
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            field.setAccessible(true);
+            getters.add(lookup.unreflectGetter(field).asType(GETTER_TYPE));
+        }
+
+        return getters.toArray(MethodHandle[]::new);
+    }
 }
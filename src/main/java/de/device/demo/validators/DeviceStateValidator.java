@@ -1,16 +1,23 @@
 package de.device.demo.validators;
 
-import de.device.demo.models.DeviceState;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 public class DeviceStateValidator implements ConstraintValidator<DeviceStateValid, String> {
 
     private boolean acceptNull = true;
+    private Set<String> names = Set.of();
 
     @Override
     public void initialize(DeviceStateValid constraintAnnotation) {
         this.acceptNull = constraintAnnotation.acceptNull();
+        this.names = Arrays.stream(constraintAnnotation.enumClass().getEnumConstants())
+                .map(Enum::name)
+                .collect(Collectors.toUnmodifiableSet());
     }
 
     @Override
@@ -19,12 +26,6 @@ public class DeviceStateValidator implements ConstraintValidator<DeviceStateVali
             return acceptNull;
         }
 
-        try {
-            DeviceState.valueOf(value);
-
-            return true;
-        } catch (IllegalArgumentException e) {
-            return false;
-        }
+        return names.contains(value);
     }
 }
@@ -0,0 +1,8 @@
+-- Keyset pagination seeks by (creation_time, id), optionally prefixed by the filtered column.
+-- Brand and state prefixed indexes cover the single column lookups as well.
+DROP INDEX idx_devices_brand;
+DROP INDEX idx_devices_state;
+
+CREATE INDEX idx_devices_creation_time_id ON devices (creation_time, id);
+CREATE INDEX idx_devices_brand_creation_time_id ON devices (brand, creation_time, id);
+CREATE INDEX idx_devices_state_creation_time_id ON devices (state, creation_time, id);
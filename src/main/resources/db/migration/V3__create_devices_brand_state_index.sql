@@ -0,0 +1,2 @@
+-- Combined brand + state (+ creation time range) lookups are a single index range scan.
+CREATE INDEX idx_devices_brand_state_creation_time_id ON devices (brand, state, creation_time, id);
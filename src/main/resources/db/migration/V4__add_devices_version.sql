@@ -0,0 +1,2 @@
+-- Optimistic concurrency, incremented by every update and exposed as ETag.
+ALTER TABLE devices ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,14 @@
+-- Totals are split over slots so concurrent writers rarely update the same row, a total is the sum of its slots
+CREATE TABLE device_counts (
+    kind VARCHAR(16) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    slot SMALLINT NOT NULL,
+    total BIGINT NOT NULL,
+    PRIMARY KEY (kind, name, slot)
+);
+
+INSERT INTO device_counts (kind, name, slot, total)
+SELECT 'state', state, 0, COUNT(*) FROM devices GROUP BY state;
+
+INSERT INTO device_counts (kind, name, slot, total)
+SELECT 'brand', brand, 0, COUNT(*) FROM devices GROUP BY brand;
@@ -0,0 +1,7 @@
+CREATE TABLE device_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    device_id UUID NOT NULL,
+    type VARCHAR(16) NOT NULL,
+    payload VARCHAR(4096) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
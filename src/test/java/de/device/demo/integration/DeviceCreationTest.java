@@ -4,7 +4,11 @@ import de.device.demo.dtos.DeviceCreateRequest;
 import de.device.demo.dtos.DeviceResponse;
 import de.device.demo.models.DeviceState;
 import de.device.demo.repositories.DeviceRepository;
+import de.device.demo.utils.DeviceRequests;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.SessionFactory;
 import org.hamcrest.core.Is;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
@@ -13,11 +17,16 @@ import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import tools.jackson.databind.ObjectMapper;
 
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -37,6 +46,9 @@ class DeviceCreationTest {
     @Autowired
     private DeviceRepository deviceRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @AfterAll
     void tearDown() {
         deviceRepository.deleteAll();
@@ -66,6 +78,36 @@ class DeviceCreationTest {
         Assertions.assertNotNull(createdDevice.getCreationTime());
     }
 
+    @Test
+    void success_insertsWithoutSelectingFirst() throws Exception {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        var device = new DeviceCreateRequest("statement count name", "statement count brand");
+
+        statistics.clear();
+
+        mockMvc.perform(post("/api/devices")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(device)))
+                .andExpect(status().isCreated());
+
+        // The INSERT, one statement for the device counts and one for the outbox
+        Assertions.assertEquals(3, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(1, statistics.getEntityInsertCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void success_idsAreTimeOrdered() throws Exception {
+        var first = DeviceRequests.create(mockMvc, objectMapper, "first", "time ordered brand");
+        Thread.sleep(2);
+        var second = DeviceRequests.create(mockMvc, objectMapper, "second", "time ordered brand");
+
+        Assertions.assertEquals(7, first.getId().version());
+        Assertions.assertEquals(7, second.getId().version());
+        // The leading 48 bits are the creation millisecond
+        Assertions.assertTrue(first.getId().getMostSignificantBits() >>> 16 < second.getId().getMostSignificantBits() >>> 16);
+    }
+
     @Test
     void whenNameIsBlank_returnValidationError() throws Exception {
         var device = new DeviceCreateRequest("", "brand");
@@ -104,4 +146,91 @@ class DeviceCreationTest {
                 .andExpect(jsonPath("$.brand", Is.is("Brand name should not be longer 255 characters")))
                 .andReturn();
     }
+
+    @Test
+    void batch_createsValidAndRejectsInvalidItems() throws Exception {
+        var devices = List.of(
+                new DeviceCreateRequest("batch device 1", "batch brand"),
+                new DeviceCreateRequest("", "batch brand"),
+                new DeviceCreateRequest("batch device 2", "batch brand")
+        );
+
+        var requestResult = mockMvc.perform(post("/api/devices/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(devices)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", Is.is(3)))
+                .andExpect(jsonPath("$[0].status", Is.is(201)))
+                .andExpect(jsonPath("$[0].device.name", Is.is("batch device 1")))
+                .andExpect(jsonPath("$[1].status", Is.is(400)))
+                .andExpect(jsonPath("$[1].errors.name", Is.is("Device name is required")))
+                .andExpect(jsonPath("$[2].status", Is.is(201)))
+                .andExpect(jsonPath("$[2].index", Is.is(2)))
+                .andReturn();
+
+        String createdId = JsonPath.read(requestResult.getResponse().getContentAsString(), "$[2].device.id");
+
+        Assertions.assertTrue(deviceRepository.findById(UUID.fromString(createdId)).isPresent());
+    }
+
+    @Test
+    void batchEmpty_isBadRequest() throws Exception {
+        mockMvc.perform(post("/api/devices/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void importCsv_acceptsValidAndCountsRejectedRows() throws Exception {
+        var brand = "importCsv brand";
+        var csv = """
+                name,brand,state,creation_time
+                import 1,%1$s,,
+                ,%1$s,,
+                "import, 2",%1$s,INACTIVE,2025-01-01T10:00:00
+                import 3,%1$s,BROKEN,
+                """.formatted(brand);
+
+        mockMvc.perform(post("/api/devices/import")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted", Is.is(2)))
+                .andExpect(jsonPath("$.rejected", Is.is(2)))
+                .andExpect(jsonPath("$.rejections[0].line", Is.is(3)))
+                .andExpect(jsonPath("$.rejections[0].errors.name", Is.is("Device name is required")))
+                .andExpect(jsonPath("$.rejections[1].errors.state", Is.is("Invalid Device state type")));
+
+        var imported = deviceRepository.findViewsByBrand(brand, Pageable.unpaged()).getContent();
+
+        Assertions.assertEquals(2, imported.size());
+        Assertions.assertTrue(imported.stream().anyMatch(device ->
+                device.name().equals("import, 2") && device.state() == DeviceState.INACTIVE
+        ));
+    }
+
+    @Test
+    void importCsv_manyBrands_countsEveryBrand() throws Exception {
+        var brands = 2500;
+        var prefix = "importCsv many brands " + UUID.randomUUID() + " ";
+        var csv = new StringBuilder("name,brand\n");
+
+        for (int i = 0; i < brands; i++) {
+            csv.append("device,").append(prefix).append(i).append('\n');
+        }
+
+        mockMvc.perform(post("/api/devices/import")
+                        .contentType("text/csv")
+                        .content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted", Is.is(brands)));
+
+        // Count changes of the import span several statements
+        mockMvc.perform(get("/api/devices")
+                        .param("brand", prefix + (brands - 1))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", Is.is(1)));
+    }
 }
@@ -4,7 +4,9 @@ import de.device.demo.entities.Device;
 import de.device.demo.errors.Errors;
 import de.device.demo.models.DeviceState;
 import de.device.demo.repositories.DeviceRepository;
+import jakarta.persistence.EntityManagerFactory;
 import org.hamcrest.core.Is;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -35,6 +37,9 @@ class DeviceDeletionTest {
     @Autowired
     private DeviceRepository deviceRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @AfterAll
     void tearDown() {
         deviceRepository.deleteAll();
@@ -78,4 +83,20 @@ class DeviceDeletionTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void deleteAllowedDevice_singleStatement() throws Exception {
+        var tempDevice = new Device(UUID.randomUUID(), "name", "brand", DeviceState.INACTIVE, LocalDateTime.now());
+        deviceRepository.save(tempDevice);
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+
+        mockMvc.perform(delete("/api/devices/" + tempDevice.getId())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+
+        // The conditional DELETE, the device counts and the outbox
+        Assertions.assertEquals(3, statistics.getPrepareStatementCount());
+    }
 }
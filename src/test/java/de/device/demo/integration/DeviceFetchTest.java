@@ -1,11 +1,17 @@
 package de.device.demo.integration;
 
+import de.device.demo.components.DeviceCountReconciler;
+import de.device.demo.configs.CborConfiguration;
+import de.device.demo.dtos.DeviceCreateRequest;
+import de.device.demo.dtos.DeviceCursorPageResponse;
+import de.device.demo.dtos.DevicePutRequest;
 import de.device.demo.dtos.DeviceResponse;
 import de.device.demo.entities.Device;
 import de.device.demo.errors.Errors;
 import de.device.demo.models.DeviceState;
 import de.device.demo.repositories.DeviceRepository;
 import de.device.demo.utils.PageableModelTest;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.hamcrest.core.Is;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -13,6 +19,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -21,10 +28,17 @@ import tools.jackson.databind.ObjectMapper;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -42,6 +56,12 @@ class DeviceFetchTest {
     @Autowired
     private DeviceRepository deviceRepository;
 
+    @Autowired
+    private DeviceCountReconciler deviceCountReconciler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @AfterEach
     void tearDown() {
         deviceRepository.deleteAll();
@@ -59,6 +79,8 @@ class DeviceFetchTest {
         devices.add(new Device(UUID.randomUUID(), "Dummy 2", "Brand", DeviceState.AVAILABLE, LocalDateTime.now()));
 
         deviceRepository.saveAll(devices);
+        // Saved around the service, so the maintained counts only see them after reconciliation
+        deviceCountReconciler.reconcile();
 
         var requestResult = mockMvc.perform(get("/api/devices?size=3")
                         .accept(MediaType.APPLICATION_JSON))
@@ -91,6 +113,48 @@ class DeviceFetchTest {
                 .andExpect(jsonPath("$.name", Is.is(persistedDevice.getName())));
     }
 
+    @Test
+    public void fetchDeviceById_afterUpdate_resultUpdated() throws Exception {
+        var knownDevice = new Device(UUID.randomUUID(), "TEST: Cached", "Brand", DeviceState.AVAILABLE, LocalDateTime.now());
+        var persistedDevice = deviceRepository.save(knownDevice);
+
+        mockMvc.perform(get("/api/devices/" + persistedDevice.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", Is.is("TEST: Cached")));
+
+        mockMvc.perform(patch("/api/devices/" + persistedDevice.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"TEST: Renamed\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/devices/" + persistedDevice.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.name", Is.is("TEST: Renamed")));
+    }
+
+    @Test
+    public void fetchDeviceById_matchingETag_resultNotModified() throws Exception {
+        var knownDevice = new Device(UUID.randomUUID(), "TEST: ETag", "Brand", DeviceState.AVAILABLE, LocalDateTime.now());
+        var persistedDevice = deviceRepository.save(knownDevice);
+
+        var eTag = mockMvc.perform(get("/api/devices/" + persistedDevice.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/devices/" + persistedDevice.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     public void fetchDeviceByWrongUUID_resultBadRequest() throws Exception {
         mockMvc.perform(get("/api/devices/" + Long.MAX_VALUE)
@@ -107,6 +171,22 @@ class DeviceFetchTest {
                 .andExpect(jsonPath("$.message", startsWith(Errors.DEVICE_ID_NOT_FOUND.getErrorCode())));
     }
 
+    @Test
+    public void fetchDeviceById_resultNotFound_recordedInMetrics() throws Exception {
+        var notFound = meterRegistry.counter("devices.errors", "status", "404", "reason", "not_found");
+        var before = notFound.count();
+
+        mockMvc.perform(get("/api/devices/" + UUID.randomUUID())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+
+        Assertions.assertEquals(before + 1, notFound.count());
+        Assertions.assertNotNull(meterRegistry.find("devices.service")
+                .tag("method", "getById")
+                .tag("exception", "DeviceNotFoundException")
+                .timer());
+    }
+
     @Test
     public void fetchDeviceByBrand_isOk() throws Exception {
         var brand = "sayHello";
@@ -136,6 +216,85 @@ class DeviceFetchTest {
         Assertions.assertEquals(deviceWithName2, devicesList.content().getLast().getName());
     }
 
+    @Test
+    public void fetchDeviceByBrand_totalFollowsWrites() throws Exception {
+        var brand = "fetchDeviceByBrand_totalFollowsWrites " + UUID.randomUUID();
+        var ids = new ArrayList<String>();
+
+        for (int i = 0; i < 3; i++) {
+            var responseBody = mockMvc.perform(post("/api/devices")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new DeviceCreateRequest("name " + i, brand))))
+                    .andExpect(status().isCreated())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+
+            ids.add(objectMapper.readValue(responseBody, DeviceResponse.class).getId().toString());
+        }
+
+        mockMvc.perform(patch("/api/devices/" + ids.getFirst())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"brand\":\"%s moved\"}".formatted(brand)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/devices").param("brand", brand).param("size", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", Is.is(2)));
+
+        mockMvc.perform(get("/api/devices").param("brand", brand).param("size", "1").param("exact_count", "true")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", Is.is(2)));
+    }
+
+    @Test
+    public void fetchStats_countsBrandByState() throws Exception {
+        var brand = UUID.randomUUID().toString();
+
+        for (var state : List.of(DeviceState.AVAILABLE, DeviceState.AVAILABLE, DeviceState.INACTIVE)) {
+            var device = new DevicePutRequest("stats", brand, state.name(), LocalDateTime.of(2024, 5, 17, 10, 0));
+
+            mockMvc.perform(put("/api/devices/" + UUID.randomUUID())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(device)))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/api/devices/stats")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.brands['%s'].AVAILABLE".formatted(brand), Is.is(2)))
+                .andExpect(jsonPath("$.brands['%s'].INACTIVE".formatted(brand), Is.is(1)))
+                .andExpect(jsonPath("$.brands['%s'].IN_USE".formatted(brand), Is.is(0)))
+                .andExpect(jsonPath("$.creation_histogram['2024-05'].AVAILABLE", Is.is(2)));
+    }
+
+    @Test
+    public void fetchStats_addsImportedDevices() throws Exception {
+        var brand = UUID.randomUUID().toString();
+        var csv = """
+                name,brand,state,creation_time
+                stats 1,%1$s,AVAILABLE,2023-02-01T10:00:00
+                stats 2,%1$s,AVAILABLE,2023-02-28T10:00:00
+                stats 3,%1$s,IN_USE,2023-03-01T10:00:00
+                """.formatted(brand);
+
+        mockMvc.perform(post("/api/devices/import")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/devices/stats")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.brands['%s'].AVAILABLE".formatted(brand), Is.is(2)))
+                .andExpect(jsonPath("$.brands['%s'].IN_USE".formatted(brand), Is.is(1)))
+                .andExpect(jsonPath("$.creation_histogram['2023-02'].AVAILABLE", Is.is(2)))
+                .andExpect(jsonPath("$.creation_histogram['2023-03'].IN_USE", Is.is(1)));
+    }
+
     @Test
     public void fetchDeviceByState_isOk() throws Exception {
         var brand = "fetchDeviceByState_isOk";
@@ -165,6 +324,41 @@ class DeviceFetchTest {
         Assertions.assertEquals(DeviceState.INACTIVE.name(), devicesList.content().getLast().getState());
     }
 
+    @Test
+    public void fetchDeviceByBrandAndState_isOk() throws Exception {
+        var brand = "fetchDeviceByBrandAndState_isOk";
+        var now = LocalDateTime.now();
+
+        deviceRepository.saveAll(List.of(
+                new Device(UUID.randomUUID(), "match", brand, DeviceState.AVAILABLE, now),
+                new Device(UUID.randomUUID(), "other state", brand, DeviceState.IN_USE, now),
+                new Device(UUID.randomUUID(), "other brand", "any other brand", DeviceState.AVAILABLE, now)
+        ));
+
+        mockMvc.perform(get("/api/devices?brand=" + brand + "&state=" + DeviceState.AVAILABLE.name())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", Is.is(1)))
+                .andExpect(jsonPath("$.content[0].name", Is.is("match")));
+    }
+
+    @Test
+    public void fetchDeviceByCreationTimeRange_isOk() throws Exception {
+        var start = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+        deviceRepository.saveAll(List.of(
+                new Device(UUID.randomUUID(), "before", "Brand", DeviceState.AVAILABLE, start.minusDays(1)),
+                new Device(UUID.randomUUID(), "inside", "Brand", DeviceState.AVAILABLE, start),
+                new Device(UUID.randomUUID(), "after", "Brand", DeviceState.AVAILABLE, start.plusDays(1))
+        ));
+
+        mockMvc.perform(get("/api/devices?brand=Brand&created_from=2025-03-01T12:00:00&created_to=2025-03-02T12:00:00")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", Is.is(1)))
+                .andExpect(jsonPath("$.content[0].name", Is.is("inside")));
+    }
+
     @Test
     public void fetchDeviceByState_isBadRequestStateParsingError() throws Exception {
         mockMvc.perform(get("/api/devices?state=unknown_state_test")
@@ -172,4 +366,167 @@ class DeviceFetchTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message", startsWith("Device state value is incorrect use: ")));
     }
+
+    @Test
+    public void fetchDevicesByCursor_walksAllPagesInCreationOrder() throws Exception {
+        var start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        var expectedNames = new ArrayList<String>();
+        var devices = new ArrayList<Device>();
+
+        for (int i = 0; i < 5; i++) {
+            var name = "Cursor device " + i;
+            expectedNames.add(name);
+            devices.add(new Device(UUID.randomUUID(), name, "Brand", DeviceState.AVAILABLE, start.plusMinutes(i)));
+        }
+
+        deviceRepository.saveAll(devices.reversed());
+
+        var fetchedNames = new ArrayList<String>();
+        String cursor = null;
+        int pages = 0;
+
+        do {
+            var url = "/api/devices/cursor?size=2" + (cursor == null ? "" : "&cursor=" + cursor);
+            var responseBody = mockMvc.perform(get(url)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+
+            var page = objectMapper.readValue(responseBody, DeviceCursorPageResponse.class);
+            page.content().forEach(device -> fetchedNames.add(device.name()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        Assertions.assertEquals(3, pages);
+        Assertions.assertEquals(expectedNames, fetchedNames);
+    }
+
+    @Test
+    public void fetchDevicesByCursorAndState_returnOnlyMatchingDevices() throws Exception {
+        var now = LocalDateTime.now();
+
+        deviceRepository.saveAll(List.of(
+                new Device(UUID.randomUUID(), "inactive 1", "Brand", DeviceState.INACTIVE, now),
+                new Device(UUID.randomUUID(), "available", "Brand", DeviceState.AVAILABLE, now.plusSeconds(1)),
+                new Device(UUID.randomUUID(), "inactive 2", "Brand", DeviceState.INACTIVE, now.plusSeconds(2))
+        ));
+
+        mockMvc.perform(get("/api/devices/cursor?state=" + DeviceState.INACTIVE.name())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()", Is.is(2)))
+                .andExpect(jsonPath("$.content[0].name", Is.is("inactive 1")))
+                .andExpect(jsonPath("$.content[1].name", Is.is("inactive 2")))
+                .andExpect(jsonPath("$.next_cursor", nullValue()));
+    }
+
+    @Test
+    public void fetchDeviceById_acceptCbor_resultBinary() throws Exception {
+        var creationTime = LocalDateTime.of(2025, 2, 1, 10, 0);
+        var persistedDevice = deviceRepository.save(
+                new Device(UUID.randomUUID(), "TEST: CBOR", "Brand", DeviceState.AVAILABLE, creationTime)
+        );
+
+        var body = mockMvc.perform(get("/api/devices/" + persistedDevice.getId())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        var device = CborConfiguration.cborMapperBuilder().build().readValue(body, DeviceResponse.class);
+
+        Assertions.assertEquals(persistedDevice.getId(), device.getId());
+        Assertions.assertEquals(creationTime, device.getCreationTime());
+    }
+
+    @Test
+    public void fetchDeviceById_cborWithLowerQuality_resultJson() throws Exception {
+        var persistedDevice = deviceRepository.save(
+                new Device(UUID.randomUUID(), "TEST: CBOR quality", "Brand", DeviceState.AVAILABLE, LocalDateTime.now())
+        );
+
+        mockMvc.perform(get("/api/devices/" + persistedDevice.getId())
+                        .header(HttpHeaders.ACCEPT, "application/cbor;q=0.1, application/json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.name", Is.is("TEST: CBOR quality")));
+
+        mockMvc.perform(get("/api/devices/" + persistedDevice.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void fetchDeviceById_acceptXml_resultNotAcceptable() throws Exception {
+        var persistedDevice = deviceRepository.save(
+                new Device(UUID.randomUUID(), "TEST: XML", "Brand", DeviceState.AVAILABLE, LocalDateTime.now())
+        );
+
+        mockMvc.perform(get("/api/devices/" + persistedDevice.getId())
+                        .accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    public void fetchDevicesByCursor_acceptCbor_resultBinary() throws Exception {
+        var brand = "fetchDevicesByCursor_acceptCbor " + UUID.randomUUID();
+        var creationTime = LocalDateTime.of(2025, 2, 1, 10, 0);
+        var persistedDevice = deviceRepository.save(
+                new Device(UUID.randomUUID(), "TEST: CBOR", brand, DeviceState.AVAILABLE, creationTime)
+        );
+
+        var body = mockMvc.perform(get("/api/devices/cursor")
+                        .param("brand", brand)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        var page = CborConfiguration.cborMapperBuilder().build().readValue(body, DeviceCursorPageResponse.class);
+
+        Assertions.assertEquals(1, page.content().size());
+        Assertions.assertEquals(persistedDevice.getId(), page.content().getFirst().id());
+        Assertions.assertEquals(creationTime, page.content().getFirst().creationTime());
+    }
+
+    @Test
+    public void fetchDevicesByBrokenCursor_isBadRequest() throws Exception {
+        mockMvc.perform(get("/api/devices/cursor?cursor=not_a_cursor")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", Is.is("Device cursor value is incorrect")));
+    }
+
+    @Test
+    public void exportDevicesByState_writesOneJsonLinePerDevice() throws Exception {
+        var now = LocalDateTime.now();
+
+        deviceRepository.saveAll(List.of(
+                new Device(UUID.randomUUID(), "export 1", "Brand", DeviceState.INACTIVE, now),
+                new Device(UUID.randomUUID(), "export 2", "Brand", DeviceState.INACTIVE, now),
+                new Device(UUID.randomUUID(), "not exported", "Brand", DeviceState.AVAILABLE, now)
+        ));
+
+        var responseBody = mockMvc.perform(get("/api/devices/export?state=" + DeviceState.INACTIVE.name())
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        var lines = responseBody.strip().split("\n");
+
+        Assertions.assertEquals(2, lines.length);
+        for (var line : lines) {
+            var device = objectMapper.readValue(line, DeviceResponse.class);
+            Assertions.assertEquals(DeviceState.INACTIVE.name(), device.getState());
+        }
+    }
 }
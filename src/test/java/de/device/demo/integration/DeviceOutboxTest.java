@@ -0,0 +1,101 @@
+package de.device.demo.integration;
+
+import de.device.demo.components.DeviceOutboxRelay;
+import de.device.demo.dtos.DeviceCreateRequest;
+import de.device.demo.dtos.DeviceResponse;
+import de.device.demo.entities.Device;
+import de.device.demo.models.DeviceState;
+import de.device.demo.repositories.DeviceOutboxRepository;
+import de.device.demo.repositories.DeviceRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DeviceOutboxTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private DeviceOutboxRepository deviceOutboxRepository;
+
+    @Autowired
+    private DeviceOutboxRelay deviceOutboxRelay;
+
+    @AfterAll
+    void tearDown() {
+        deviceRepository.deleteAll();
+    }
+
+    @Test
+    void create_writesOutboxMessageUntilRelayed() throws Exception {
+        var responseBody = mockMvc.perform(post("/api/devices")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DeviceCreateRequest("outbox", "outbox"))))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        var id = objectMapper.readValue(responseBody, DeviceResponse.class).getId();
+
+        Assertions.assertTrue(deviceOutboxRepository.existsByDeviceId(id));
+
+        deviceOutboxRelay.relay();
+
+        Assertions.assertFalse(deviceOutboxRepository.existsByDeviceId(id));
+    }
+
+    @Test
+    void importCsv_writesOutboxMessagePerDevice() throws Exception {
+        var brand = "outbox import " + UUID.randomUUID();
+
+        mockMvc.perform(post("/api/devices/import")
+                        .contentType("text/csv")
+                        .content("name,brand\nimport 1,%1$s\nimport 2,%1$s\n".formatted(brand)))
+                .andExpect(status().isOk());
+
+        var imported = deviceRepository.findViewsByBrand(brand, Pageable.unpaged()).getContent();
+
+        Assertions.assertEquals(2, imported.size());
+        imported.forEach(device -> Assertions.assertTrue(deviceOutboxRepository.existsByDeviceId(device.id())));
+    }
+
+    @Test
+    void rejectedUpdate_writesNoOutboxMessage() throws Exception {
+        var device = new Device(UUID.randomUUID(), "name", "brand", DeviceState.IN_USE, LocalDateTime.now());
+        deviceRepository.save(device);
+
+        mockMvc.perform(patch("/api/devices/" + device.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"renamed\"}"))
+                .andExpect(status().isConflict());
+
+        Assertions.assertFalse(deviceOutboxRepository.existsByDeviceId(device.getId()));
+    }
+}
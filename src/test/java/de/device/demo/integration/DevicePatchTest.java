@@ -6,7 +6,9 @@ import de.device.demo.entities.Device;
 import de.device.demo.errors.Errors;
 import de.device.demo.models.DeviceState;
 import de.device.demo.repositories.DeviceRepository;
+import jakarta.persistence.EntityManagerFactory;
 import org.hamcrest.core.Is;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -14,6 +16,7 @@ import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -23,7 +26,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -42,6 +47,9 @@ class DevicePatchTest {
     @Autowired
     private DeviceRepository deviceRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @AfterAll
     void tearDown() {
         deviceRepository.deleteAll();
@@ -179,4 +187,92 @@ class DevicePatchTest {
         Assertions.assertEquals(newDevice.getName(), updatedDevice.getName());
         Assertions.assertEquals(newDevice.getBrand(), updatedDevice.getBrand());
     }
+
+    @Test
+    void fetchAfterUpdate_returnsUpdatedDevice() throws Exception {
+        var newDevice = new Device(UUID.randomUUID(), "cached name", "brand", DeviceState.AVAILABLE, LocalDateTime.now());
+        newDevice = deviceRepository.save(newDevice);
+
+        mockMvc.perform(get("/api/devices/" + newDevice.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", Is.is("cached name")));
+
+        mockMvc.perform(patch("/api/devices/" + newDevice.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"updated name\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/devices/" + newDevice.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", Is.is("updated name")));
+    }
+
+    @Test
+    void updateWithMatchingETag_isOkAndBumpsVersion() throws Exception {
+        var newDevice = new Device(UUID.randomUUID(), "name", "brand", DeviceState.AVAILABLE, LocalDateTime.now());
+        newDevice = deviceRepository.save(newDevice);
+
+        mockMvc.perform(patch("/api/devices/" + newDevice.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"versioned\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    }
+
+    @Test
+    void updateWithStaleETag_isPreconditionFailed() throws Exception {
+        var newDevice = new Device(UUID.randomUUID(), "name", "brand", DeviceState.AVAILABLE, LocalDateTime.now());
+        newDevice = deviceRepository.save(newDevice);
+
+        mockMvc.perform(patch("/api/devices/" + newDevice.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"5\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"stale\"}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message", startsWith(Errors.DEVICE_VERSION_MISMATCH.getErrorCode())));
+
+        Assertions.assertEquals("name", deviceRepository.findById(newDevice.getId()).get().getName());
+    }
+
+    @Test
+    void updateAllowedDevice_singleStatement() throws Exception {
+        var newDevice = new Device(UUID.randomUUID(), "name", "brand", DeviceState.AVAILABLE, LocalDateTime.now());
+        newDevice = deviceRepository.save(newDevice);
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+
+        mockMvc.perform(patch("/api/devices/" + newDevice.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"single statement\",\"state\":\"INACTIVE\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", Is.is("single statement")))
+                .andExpect(jsonPath("$.state", Is.is("INACTIVE")));
+
+        // The conditional UPDATE returns the row, nothing is read before or after it,
+        // the state change costs one statement for the device counts and the other is the outbox insert
+        Assertions.assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void renameAllowedDevice_changesNoCounts() throws Exception {
+        var newDevice = new Device(UUID.randomUUID(), "name", "brand", DeviceState.AVAILABLE, LocalDateTime.now());
+        newDevice = deviceRepository.save(newDevice);
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+
+        mockMvc.perform(patch("/api/devices/" + newDevice.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"renamed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", Is.is("renamed")))
+                .andExpect(jsonPath("$.state", Is.is("AVAILABLE")));
+
+        // A rename changes no counts, the UPDATE and the outbox insert
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+    }
 }
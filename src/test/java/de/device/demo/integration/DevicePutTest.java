@@ -7,7 +7,10 @@ import de.device.demo.entities.Device;
 import de.device.demo.errors.Errors;
 import de.device.demo.models.DeviceState;
 import de.device.demo.repositories.DeviceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
 import org.hamcrest.core.Is;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -44,6 +47,12 @@ class DevicePutTest {
     @Autowired
     private DeviceRepository deviceRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @AfterAll
     void tearDown() {
         deviceRepository.deleteAll();
@@ -84,6 +93,10 @@ class DevicePutTest {
 
     @Test
     void updateDeviceWithCreationDate_isConflictResponse() throws Exception {
+        var creationTimeErrors = meterRegistry.counter("devices.errors", "status", "409", "reason", "creation_time_immutable");
+        var inUseErrors = meterRegistry.counter("devices.errors", "status", "409", "reason", "in_use");
+        var creationTimeErrorsBefore = creationTimeErrors.count();
+        var inUseErrorsBefore = inUseErrors.count();
         var oldName = "old name";
         var newDevice = new Device(UUID.randomUUID(), oldName, "brand", DeviceState.AVAILABLE, LocalDateTime.now());
         newDevice = deviceRepository.save(newDevice);
@@ -106,6 +119,8 @@ class DevicePutTest {
 
         var storedDevice = deviceRepository.findById(newDevice.getId()).get();
         Assertions.assertEquals(oldName, storedDevice.getName());
+        Assertions.assertEquals(creationTimeErrorsBefore + 1, creationTimeErrors.count());
+        Assertions.assertEquals(inUseErrorsBefore, inUseErrors.count());
     }
 
     @Test
@@ -181,6 +196,27 @@ class DevicePutTest {
         Assertions.assertEquals(now.truncatedTo(ChronoUnit.SECONDS), createdDevice.getCreationTime().truncatedTo(ChronoUnit.SECONDS));
     }
 
+    @Test
+    void createDevice_singleStatement() throws Exception {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        var deviceUpdateRequest = new DevicePutRequest(
+                "createDevice_singleStatement",
+                "createDevice_singleStatement",
+                DeviceState.AVAILABLE.name(),
+                LocalDateTime.now()
+        );
+
+        statistics.clear();
+
+        mockMvc.perform(put("/api/devices/" + UUID.randomUUID())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deviceUpdateRequest)))
+                .andExpect(status().isCreated());
+
+        // INSERT that skips a taken id, no lookup before it, then the device counts and the outbox
+        Assertions.assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
     @Test
     void createDeviceWithoutCreationTime_isBadRequest() throws Exception {
         var newUuid = UUID.randomUUID();
@@ -199,4 +235,34 @@ class DevicePutTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message", Is.is("A required field 'creation_time' is missing")));
     }
+
+    @Test
+    void createSameDeviceTwice_isConflictResponse() throws Exception {
+        var id = UUID.randomUUID();
+        var deviceCreateRequest = new DevicePutRequest("name", "brand", DeviceState.AVAILABLE.name(), LocalDateTime.now());
+
+        mockMvc.perform(put("/api/devices/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deviceCreateRequest)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(put("/api/devices/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deviceCreateRequest)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message", startsWith(Errors.DEVICE_NOT_MODIFIABLE.getErrorCode())));
+    }
+
+    @Test
+    void updateDeviceInUseKeepingNameAndBrand_isOk() throws Exception {
+        var device = new Device(UUID.randomUUID(), "name", "brand", DeviceState.IN_USE, LocalDateTime.now());
+        deviceRepository.save(device);
+        var deviceUpdateRequest = new DevicePutRequest("name", "brand", DeviceState.INACTIVE.name(), null);
+
+        mockMvc.perform(put("/api/devices/" + device.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deviceUpdateRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state", Is.is(DeviceState.INACTIVE.name())));
+    }
 }
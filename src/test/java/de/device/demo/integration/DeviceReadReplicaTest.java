@@ -0,0 +1,93 @@
+package de.device.demo.integration;
+
+import de.device.demo.dtos.DeviceCreateRequest;
+import de.device.demo.dtos.DevicePatchRequest;
+import de.device.demo.entities.Device;
+import de.device.demo.filters.PrimaryPinFilter;
+import de.device.demo.models.DeviceState;
+import de.device.demo.repositories.DeviceRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Primary and replica are independent in-memory databases here, so a read shows whether it went to the primary.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:primarydb")
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "replica"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DeviceReadReplicaTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @AfterAll
+    void tearDown() {
+        deviceRepository.deleteAll();
+    }
+
+    @Test
+    void fetchDevicesByBrand_afterOwnWrite_readsFromPrimary() throws Exception {
+        var brand = "fetchDevicesByBrand_afterOwnWrite " + UUID.randomUUID();
+
+        var pin = mockMvc.perform(post("/api/devices")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DeviceCreateRequest("replica", brand))))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(PrimaryPinFilter.COOKIE_NAME))
+                .andReturn()
+                .getResponse()
+                .getCookie(PrimaryPinFilter.COOKIE_NAME);
+
+        mockMvc.perform(get("/api/devices")
+                        .param("brand", brand)
+                        .cookie(pin))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1));
+
+        mockMvc.perform(get("/api/devices")
+                        .param("brand", brand))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+    }
+
+    @Test
+    void fetchDeviceById_afterUpdate_unpinnedReadSeesUpdate() throws Exception {
+        var device = deviceRepository.save(new Device(UUID.randomUUID(), "name", "brand", DeviceState.AVAILABLE, LocalDateTime.now()));
+
+        mockMvc.perform(patch("/api/devices/" + device.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DevicePatchRequest("updated name", null, null))))
+                .andExpect(status().isOk());
+
+        // No pin cookie, the cached device is still loaded from the primary
+        mockMvc.perform(get("/api/devices/" + device.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("updated name"));
+    }
+}
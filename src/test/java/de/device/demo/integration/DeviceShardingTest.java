@@ -0,0 +1,230 @@
+package de.device.demo.integration;
+
+import de.device.demo.components.DeviceShards;
+import de.device.demo.dtos.DeviceCursorPageResponse;
+import de.device.demo.dtos.DevicePutRequest;
+import de.device.demo.dtos.DeviceView;
+import de.device.demo.errors.Errors;
+import de.device.demo.factories.TimeOrderedDeviceIdGenerator;
+import de.device.demo.models.DeviceState;
+import de.device.demo.repositories.DeviceRepository;
+import de.device.demo.utils.DeviceRequests;
+import de.device.demo.utils.PageableModelTest;
+import org.hamcrest.core.Is;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Shards are independent in-memory databases, see the sharding profile.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "sharding"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DeviceShardingTest {
+
+    private static final int DEVICES = 12;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private DeviceShards deviceShards;
+
+    @AfterAll
+    void tearDown() {
+        for (int shard = 0; shard < deviceShards.count(); shard++) {
+            deviceShards.onShard(shard, () -> {
+                deviceRepository.deleteAll();
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void fetchDevicesByBrand_mergesShardsInRequestedOrder() throws Exception {
+        var brand = "sharding " + UUID.randomUUID();
+        var ids = new ArrayList<UUID>();
+
+        for (int i = 0; i < DEVICES; i++) {
+            ids.add(DeviceRequests.create(mockMvc, objectMapper, "Device " + (char) ('a' + i), brand).getId());
+        }
+
+        var usedShards = new HashSet<Integer>();
+        ids.forEach(id -> usedShards.add(deviceShards.shardOf(id)));
+        Assertions.assertTrue(usedShards.size() > 1);
+
+        for (var id : ids) {
+            mockMvc.perform(get("/api/devices/" + id).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+
+        var names = new ArrayList<String>();
+
+        for (int page = 0; page < 3; page++) {
+            var result = fetchPage(brand, page, "name,desc");
+
+            Assertions.assertEquals(DEVICES, result.totalElements());
+            result.content().forEach(device -> names.add(device.name()));
+        }
+
+        Assertions.assertEquals(DEVICES, names.size());
+        Assertions.assertEquals(names.stream().sorted(Comparator.reverseOrder()).toList(), names);
+    }
+
+    @Test
+    void fetchDevicesByBrand_sortedByState_mergesByStoredName() throws Exception {
+        var brand = "sharding state " + UUID.randomUUID();
+
+        // Declared AVAILABLE, IN_USE, INACTIVE, stored and sorted by name
+        for (var state : DeviceState.values()) {
+            for (int i = 0; i < 4; i++) {
+                var request = new DevicePutRequest("Device " + state + " " + i, brand, state.name(), null);
+                DeviceRequests.put(mockMvc, objectMapper, UUID.randomUUID(), request);
+            }
+        }
+
+        var states = new ArrayList<DeviceState>();
+
+        for (int page = 0; page < 3; page++) {
+            fetchPage(brand, page, "state").content().forEach(device -> states.add(device.state()));
+        }
+
+        Assertions.assertEquals(DEVICES, states.size());
+        Assertions.assertEquals(states.stream().sorted(Comparator.comparing(DeviceState::name)).toList(), states);
+    }
+
+    @Test
+    void fetchDevicesByCursor_mixedIdVersions_returnsEveryDeviceOnce() throws Exception {
+        var brand = "sharding cursor " + UUID.randomUUID();
+        var creationTime = LocalDateTime.of(2025, 1, 1, 10, 0);
+        var idGenerator = new TimeOrderedDeviceIdGenerator();
+        var ids = new HashSet<UUID>();
+
+        // Random ids starting with 8 or f have the sign bit set, time ordered ids of today do not
+        for (int i = 0; i < DEVICES; i++) {
+            var id = switch (i % 3) {
+                case 0 -> UUID.fromString("f" + UUID.randomUUID().toString().substring(1));
+                case 1 -> UUID.fromString("8" + UUID.randomUUID().toString().substring(1));
+                default -> idGenerator.nextId();
+            };
+            var request = new DevicePutRequest("Device " + i, brand, DeviceState.AVAILABLE.name(), creationTime);
+
+            ids.add(DeviceRequests.put(mockMvc, objectMapper, id, request).getId());
+        }
+
+        var fetched = new ArrayList<UUID>();
+        String cursor = null;
+
+        do {
+            var request = get("/api/devices/cursor")
+                    .param("brand", brand)
+                    .param("size", "5")
+                    .accept(MediaType.APPLICATION_JSON);
+
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+
+            var responseBody = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            var page = objectMapper.readValue(responseBody, DeviceCursorPageResponse.class);
+
+            page.content().forEach(device -> fetched.add(device.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null && fetched.size() <= DEVICES);
+
+        Assertions.assertEquals(DEVICES, fetched.size());
+        Assertions.assertEquals(ids, new HashSet<>(fetched));
+    }
+
+    @Test
+    void importCsv_writesEveryDeviceToItsShard() throws Exception {
+        var brand = "sharded import " + UUID.randomUUID();
+        var csv = new StringBuilder("name,brand\n");
+
+        for (int i = 0; i < DEVICES; i++) {
+            csv.append("Import ").append((char) ('a' + i)).append(',').append(brand).append('\n');
+        }
+
+        mockMvc.perform(post("/api/devices/import")
+                        .contentType("text/csv")
+                        .content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted", Is.is(DEVICES)));
+
+        var ids = new ArrayList<UUID>();
+
+        for (int page = 0; page < 3; page++) {
+            var result = fetchPage(brand, page, "name,desc");
+
+            Assertions.assertEquals(DEVICES, result.totalElements());
+            result.content().forEach(device -> ids.add(device.id()));
+        }
+
+        var usedShards = new HashSet<Integer>();
+        ids.forEach(id -> usedShards.add(deviceShards.shardOf(id)));
+        Assertions.assertTrue(usedShards.size() > 1);
+
+        // Reads by id only look at the device's own shard
+        for (var id : ids) {
+            mockMvc.perform(get("/api/devices/" + id).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void exportDevices_isNotImplemented() throws Exception {
+        mockMvc.perform(get("/api/devices/export").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isNotImplemented())
+                .andExpect(jsonPath("$.message", startsWith(Errors.DEVICE_EXPORT_UNSUPPORTED.getErrorCode())));
+    }
+
+    private PageableModelTest<DeviceView> fetchPage(String brand, int page, String sort) throws Exception {
+        var responseBody = mockMvc.perform(get("/api/devices")
+                        .param("brand", brand)
+                        .param("page", Integer.toString(page))
+                        .param("size", "5")
+                        .param("sort", sort)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        return objectMapper.readValue(responseBody, new TypeReference<PageableModelTest<DeviceView>>() {
+        });
+    }
+}
@@ -0,0 +1,231 @@
+package de.device.demo.integration;
+
+import de.device.demo.entities.Device;
+import de.device.demo.events.DeviceChangedEvent;
+import de.device.demo.models.DeviceState;
+import de.device.demo.repositories.DeviceRepository;
+import de.device.demo.services.DefaultDeviceStreamService;
+import de.device.demo.utils.DeviceRequests;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DeviceStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private DefaultDeviceStreamService deviceStreamService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterAll
+    void tearDown() {
+        deviceRepository.deleteAll();
+    }
+
+    @Test
+    void streamByBrand_receivesOnlyMatchingChanges() throws Exception {
+        var brand = "streamByBrand " + UUID.randomUUID();
+        var stream = mockMvc.perform(get("/api/devices/stream")
+                        .param("brand", brand)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+
+        var otherId = DeviceRequests.create(mockMvc, objectMapper, "other", "any other brand").getId().toString();
+        var matchingId = DeviceRequests.create(mockMvc, objectMapper, "matching", brand).getId().toString();
+
+        var content = awaitContent(stream, matchingId);
+
+        Assertions.assertTrue(content.contains("event:created"));
+        Assertions.assertFalse(content.contains(otherId));
+    }
+
+    @Test
+    void streamFromUnknownLastEventId_receivesReset() throws Exception {
+        var stream = mockMvc.perform(get("/api/devices/stream")
+                        .header("Last-Event-ID", "unknown:1")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+
+        Assertions.assertTrue(awaitContent(stream, "event:reset").contains("event:reset"));
+    }
+
+    @Test
+    void streamFromLastEventId_replaysLaterChanges() throws Exception {
+        var brand = "streamFromLastEventId " + UUID.randomUUID();
+        var stream = subscribe(brand, null);
+
+        var firstId = DeviceRequests.create(mockMvc, objectMapper, "first", brand).getId().toString();
+        var lastEventId = eventId(awaitContent(stream, firstId), firstId);
+        var secondId = DeviceRequests.create(mockMvc, objectMapper, "second", brand).getId().toString();
+
+        var resumed = subscribe(brand, lastEventId);
+        var content = awaitContent(resumed, secondId);
+
+        Assertions.assertTrue(content.contains(secondId));
+        Assertions.assertFalse(content.contains(firstId));
+        Assertions.assertFalse(content.contains("event:reset"));
+    }
+
+    @Test
+    void slowSubscriber_isDroppedAndCounted() throws Exception {
+        var brand = "slowSubscriber " + UUID.randomUUID();
+        var dropped = meterRegistry.counter("devices.stream.dropped");
+        var before = dropped.count();
+
+        subscribe(brand, null);
+
+        // Changes are offered far faster than a subscriber is sent to, its queue overflows
+        var device = new Device(UUID.randomUUID(), "slow", brand, DeviceState.AVAILABLE, LocalDateTime.now());
+
+        for (int i = 0; i < 100_000 && dropped.count() == before; i++) {
+            deviceStreamService.onDeviceChanged(DeviceChangedEvent.created(device));
+        }
+
+        Assertions.assertTrue(dropped.count() > before);
+    }
+
+    @Test
+    void concurrentChanges_areSentInSequence() throws Exception {
+        var brand = "concurrentChanges " + UUID.randomUUID();
+        var stream = subscribe(brand, null);
+        var writers = 8;
+        var changesPerWriter = 25;
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+
+        // Fewer changes than the subscriber queue holds, so nothing is dropped
+        for (int writer = 0; writer < writers; writer++) {
+            var device = new Device(UUID.randomUUID(), "concurrent " + writer, brand, DeviceState.AVAILABLE, LocalDateTime.now());
+
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int i = 0; i < changesPerWriter; i++) {
+                    deviceStreamService.onDeviceChanged(DeviceChangedEvent.created(device));
+                }
+            }));
+        }
+
+        start.countDown();
+
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        var sequences = new ArrayList<Long>();
+
+        for (int i = 0; i < 50 && sequences.size() < writers * changesPerWriter; i++) {
+            Thread.sleep(100);
+            sequences.clear();
+            stream.getContentAsString().lines()
+                    .filter(line -> line.startsWith("id:"))
+                    .forEach(line -> sequences.add(Long.parseLong(line.substring(line.indexOf(':', "id:".length()) + 1))));
+        }
+
+        Assertions.assertEquals(writers * changesPerWriter, sequences.size());
+
+        for (int i = 1; i < sequences.size(); i++) {
+            Assertions.assertTrue(sequences.get(i - 1) < sequences.get(i), "Sent out of sequence " + sequences);
+        }
+    }
+
+    @Test
+    void importDevices_sendsReset() throws Exception {
+        var stream = subscribe("importDevices_sendsReset " + UUID.randomUUID(), null);
+
+        mockMvc.perform(post("/api/devices/import")
+                        .contentType("text/csv")
+                        .content("name,brand\nimported,stream import brand\n"))
+                .andExpect(status().isOk());
+
+        Assertions.assertTrue(awaitContent(stream, "event:reset").contains("event:reset"));
+    }
+
+    private MockHttpServletResponse subscribe(String brand, String lastEventId) throws Exception {
+        var streamRequest = get("/api/devices/stream")
+                .param("brand", brand)
+                .accept(MediaType.TEXT_EVENT_STREAM);
+
+        if (lastEventId != null) {
+            streamRequest.header("Last-Event-ID", lastEventId);
+        }
+
+        return mockMvc.perform(streamRequest)
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    // Events are separated by a blank line, the id line precedes the data naming the device
+    private static String eventId(String content, String deviceId) {
+        for (var event : content.split("\n\n")) {
+            if (event.contains(deviceId)) {
+                return event.lines()
+                        .filter(line -> line.startsWith("id:"))
+                        .findFirst()
+                        .map(line -> line.substring("id:".length()))
+                        .orElseThrow();
+            }
+        }
+
+        throw new AssertionError("No event for device " + deviceId);
+    }
+
+    // Events are sent from another thread, wait until the expected one arrived
+    private static String awaitContent(MockHttpServletResponse stream, String expected) throws Exception {
+        for (int i = 0; i < 50; i++) {
+            var content = stream.getContentAsString();
+
+            if (content.contains(expected)) {
+                return content;
+            }
+
+            Thread.sleep(100);
+        }
+
+        return stream.getContentAsString();
+    }
+}
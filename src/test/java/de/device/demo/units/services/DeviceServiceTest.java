@@ -1,6 +1,6 @@
 package de.device.demo.units.services;
 
-import de.device.demo.entities.Device;
+import de.device.demo.dtos.DeviceView;
 import de.device.demo.models.DeviceState;
 import de.device.demo.repositories.DeviceRepository;
 import de.device.demo.services.DefaultDeviceService;
@@ -39,19 +39,19 @@ public class DeviceServiceTest {
         var deviceNameOne = "Device One";
         var deviceNameTwo = "Device Two";
 
-        var devices = new ArrayList<Device>();
-        devices.add(new Device(UUID.randomUUID(), deviceNameOne, "Brand", DeviceState.AVAILABLE, LocalDateTime.now()));
-        devices.add(new Device(UUID.randomUUID(), deviceNameTwo, "Brand", DeviceState.AVAILABLE, LocalDateTime.now()));
+        var devices = new ArrayList<DeviceView>();
+        devices.add(new DeviceView(UUID.randomUUID(), deviceNameOne, "Brand", DeviceState.AVAILABLE, LocalDateTime.now()));
+        devices.add(new DeviceView(UUID.randomUUID(), deviceNameTwo, "Brand", DeviceState.AVAILABLE, LocalDateTime.now()));
 
         var devicePage = new PageImpl<>(devices);
         var pageable = Pageable.unpaged();
 
-        when(deviceRepository.findAll(pageable)).thenReturn(devicePage);
+        when(deviceRepository.findViews(pageable)).thenReturn(devicePage);
 
-        var result = deviceService.getDevices(pageable);
+        var result = deviceService.getDevices(pageable, true);
 
         Assertions.assertEquals(2, result.getContent().size());
-        Assertions.assertEquals(deviceNameOne, result.getContent().get(0).getName());
-        Assertions.assertEquals(deviceNameTwo, result.getContent().get(1).getName());
+        Assertions.assertEquals(deviceNameOne, result.getContent().get(0).name());
+        Assertions.assertEquals(deviceNameTwo, result.getContent().get(1).name());
     }
 }
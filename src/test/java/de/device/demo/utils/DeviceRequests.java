@@ -0,0 +1,53 @@
+package de.device.demo.utils;
+
+import de.device.demo.dtos.DeviceCreateRequest;
+import de.device.demo.dtos.DevicePutRequest;
+import de.device.demo.dtos.DeviceResponse;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Requests shared by the integration tests.
+ */
+public final class DeviceRequests {
+
+    private DeviceRequests() {
+    }
+
+    /**
+     * Creates a device through the API, so all write side effects run as in production.
+     */
+    public static DeviceResponse create(MockMvc mockMvc, ObjectMapper objectMapper, String name, String brand) throws Exception {
+        var responseBody = mockMvc.perform(post("/api/devices")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DeviceCreateRequest(name, brand))))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        return objectMapper.readValue(responseBody, DeviceResponse.class);
+    }
+
+    /**
+     * Creates a device under the given id, for tests that need to choose ids or creation times.
+     */
+    public static DeviceResponse put(MockMvc mockMvc, ObjectMapper objectMapper, UUID id, DevicePutRequest request) throws Exception {
+        var responseBody = mockMvc.perform(put("/api/devices/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        return objectMapper.readValue(responseBody, DeviceResponse.class);
+    }
+}